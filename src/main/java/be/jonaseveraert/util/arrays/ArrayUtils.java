@@ -1,17 +1,23 @@
 package be.jonaseveraert.util.arrays;
 
 import java.nio.charset.Charset;
-import java.nio.charset.StandardCharsets;
+import java.util.AbstractList;
+import java.util.List;
+import java.util.RandomAccess;
+import java.util.Spliterator;
+import java.util.function.Consumer;
 
 /**
  * A collection of methods for arrays.
+ * <p>{@code partArray} and {@code repeatArray} exist for all primitive array types except {@code boolean[]};
+ * {@code invertArray} exists for the integral types. Every method also has a variant that writes into an array of the
+ * caller instead of allocating a new one, so it can be used in hot loops without creating garbage.</p>
  * @author Jonas Everaert
  * @author <a href="https://jonaseveraert.be">jonaseveraert.be</a>
  * @since 1.0
  */
 public abstract class ArrayUtils {
 
-    // Todo: also make all methods without explicit type in the name for other array types
     // Byte Arrays //
     /**
      * Copies a srcArray, but only the first bytes until {@code outputArraySize}.
@@ -52,8 +58,30 @@ public abstract class ArrayUtils {
         return partArray;
     }
 
+    /**
+     * Copies {@code length} bytes of the {@code srcArray} into the {@code dstArray}, without allocating a new array.
+     * @param srcArray the array you want to copy from
+     * @param srcOffset the offset where the method will start copying the {@code srcArray}
+     * @param dstArray the array the bytes are copied to
+     * @param dstOffset the offset in the {@code dstArray} where the first byte is written
+     * @param length the amount of bytes that will be copied
+     *
+     * @throws OutputArraySizeTooLargeException when {@code length} bytes do not fit in the {@code srcArray} from
+     * {@code srcOffset} on, or in the {@code dstArray} from {@code dstOffset} on
+     * @since 1.2
+     */
+    public static void partArray(byte[] srcArray, int srcOffset, byte[] dstArray, int dstOffset, int length) throws OutputArraySizeTooLargeException {
+        try {
+            System.arraycopy(srcArray, srcOffset, dstArray, dstOffset, length);
+        } catch (IndexOutOfBoundsException e) {
+            throw new OutputArraySizeTooLargeException("The array could not be copied because the length is bigger than the srcArray or the dstArray", e);
+        }
+    }
+
     /**
      * Inverts all bytes in an array (e.g. 000101 becomes 111010)
+     * <p>For large arrays that are not needed anymore afterwards, {@link #invertByteArrayInPlace(byte[])} is several
+     * times faster, because it does not have to allocate and clear a new array.</p>
      * @param bytes the array you want to invert
      * @return a new array containing the inverted bytes
      * @throws EmptyArrayException When the inputted {@code bytes} array is null.
@@ -64,42 +92,804 @@ public abstract class ArrayUtils {
         }
 
         byte[] outputArray = new byte[bytes.length];
-        for(int i = 0; i < bytes.length; i++) {
-            outputArray[i] = (byte) ~bytes[i];
-        }
+        invertArray(bytes, 0, outputArray, 0, bytes.length);
         return outputArray;
     }
 
+    /**
+     * Inverts all bytes in an array (e.g. 000101 becomes 111010), overwriting the array.
+     * @param bytes the array you want to invert
+     * @throws EmptyArrayException When the inputted {@code bytes} array is null.
+     * @since 1.2
+     */
+    public static void invertByteArrayInPlace(byte[] bytes) throws EmptyArrayException {
+        if (bytes == null) {
+            throw new EmptyArrayException("The bytes array is null and cannot be null in this method.");
+        }
+        invertArray(bytes, 0, bytes, 0, bytes.length);
+    }
+
+    /**
+     * Inverts {@code length} bytes of the {@code srcArray} into the {@code dstArray}, without allocating a new array.
+     * The {@code srcArray} and {@code dstArray} can be the same array with the same offset, which inverts in place.
+     * <p>From the {@link #setParallelThreshold(int) parallel threshold} on, the work is split over the threads of the
+     * {@link java.util.concurrent.ForkJoinPool#commonPool() common pool}.</p>
+     * @param srcArray the array you want to invert
+     * @param srcOffset the offset of the first byte that will be inverted
+     * @param dstArray the array the inverted bytes are written to
+     * @param dstOffset the offset in the {@code dstArray} where the first inverted byte is written
+     * @param length the amount of bytes that will be inverted
+     * @throws EmptyArrayException When the {@code srcArray} or {@code dstArray} is null.
+     * @throws IndexOutOfBoundsException when {@code length} bytes do not fit in one of the arrays
+     * @since 1.2
+     */
+    public static void invertArray(byte[] srcArray, int srcOffset, byte[] dstArray, int dstOffset, int length) throws EmptyArrayException {
+        checkRange(srcArray, srcArray == null ? 0 : srcArray.length, srcOffset, dstArray, dstArray == null ? 0 : dstArray.length, dstOffset, length);
+        if (ParallelRanges.isWorthIt((long) length * Byte.BYTES)) {
+            ParallelRanges.forEach(dstOffset, length, Byte.BYTES, (from, to) -> invertRange(srcArray, srcOffset + from, dstArray, dstOffset + from, to - from));
+        } else {
+            invertRange(srcArray, srcOffset, dstArray, dstOffset, length);
+        }
+    }
+
+    private static void invertRange(byte[] srcArray, int srcOffset, byte[] dstArray, int dstOffset, int length) {
+        // A plain loop over bytes: the JIT compiles it to SIMD instructions that invert 16 to 64 bytes at a time, which
+        // is faster than inverting 8 bytes at a time through long views of the array
+        for (int i = 0; i < length; i++) {
+            dstArray[dstOffset + i] = (byte) ~srcArray[srcOffset + i];
+        }
+    }
+
     /**
      * Repeats an array into a new array x times
      * @param array the array you want to copy x times
      * @param repeat the amount of times you want to copy the array into the new array
      * @return an array containing the content of {@code array} {@code repeat} times.
+     * @throws IllegalArgumentException when {@code repeat} is negative, or the result would have more than
+     * {@link Integer#MAX_VALUE} bytes
      */
     public static byte[] repeatArray(byte[] array, int repeat) {
-        byte[] result = new byte[array.length * repeat];
-        for (int i = 0; i < result.length; i++) {
-            result[i] = array[i % array.length];
+        byte[] result = new byte[repeatedLength(array.length, repeat)];
+        repeatArray(array, 0, array.length, result, 0, repeat);
+        return result;
+    }
+
+    /**
+     * Repeats a part of an array {@code repeat} times into the {@code dstArray}, without allocating a new array.
+     * @param srcArray the array you want to repeat
+     * @param srcOffset the offset of the part that will be repeated
+     * @param length the length of the part that will be repeated
+     * @param dstArray the array the copies are written to; it needs room for {@code length * repeat} bytes from
+     *                 {@code dstOffset} on
+     * @param dstOffset the offset in the {@code dstArray} where the first copy is written
+     * @param repeat the amount of times the part is copied
+     * @throws IndexOutOfBoundsException when the part is not inside the {@code srcArray}, or the copies do not fit in
+     * the {@code dstArray}
+     * @since 1.2
+     */
+    public static void repeatArray(byte[] srcArray, int srcOffset, int length, byte[] dstArray, int dstOffset, int repeat) {
+        repeat(srcArray, srcOffset, length, dstArray, dstOffset, dstArray.length, repeatedLength(length, repeat));
+    }
+
+    /**
+     * Fills the whole {@code dstArray} with copies of the {@code array}, without allocating a new array. If the length
+     * of the {@code dstArray} is not a multiple of the length of the {@code array}, the last copy is cut off.
+     * @param array the array you want to repeat
+     * @param dstArray the array that will be filled
+     * @throws IllegalArgumentException when the {@code array} is empty and the {@code dstArray} is not
+     * @since 1.2
+     */
+    public static void repeatInto(byte[] array, byte[] dstArray) {
+        repeatInto(array, array.length, dstArray, dstArray.length);
+    }
+
+    /**
+     * Does the same as {@link #repeatArray(byte[], int)}, but fills the result with several threads of the
+     * {@link java.util.concurrent.ForkJoinPool#commonPool() common pool}. This is only faster for results of many
+     * megabytes.
+     * @param array the array you want to copy x times
+     * @param repeat the amount of times you want to copy the array into the new array
+     * @return an array containing the content of {@code array} {@code repeat} times.
+     * @throws IllegalArgumentException when {@code repeat} is negative, or the result would have more than
+     * {@link Integer#MAX_VALUE} bytes
+     * @since 1.2
+     */
+    public static byte[] repeatArrayParallel(byte[] array, int repeat) {
+        byte[] result = new byte[repeatedLength(array.length, repeat)];
+        repeatIntoParallel(array, result);
+        return result;
+    }
+
+    /**
+     * Does the same as {@link #repeatInto(byte[], byte[])}, but fills the {@code dstArray} with several threads of the
+     * {@link java.util.concurrent.ForkJoinPool#commonPool() common pool}. This is only faster for arrays of many
+     * megabytes.
+     * @param array the array you want to repeat
+     * @param dstArray the array that will be filled
+     * @throws IllegalArgumentException when the {@code array} is empty and the {@code dstArray} is not
+     * @since 1.2
+     */
+    public static void repeatIntoParallel(byte[] array, byte[] dstArray) {
+        if (dstArray.length == 0) return;
+        if (array.length == 0) {
+            throw new IllegalArgumentException("The dstArray cannot be filled with an empty array.");
+        }
+        System.arraycopy(array, 0, dstArray, 0, Math.min(array.length, dstArray.length));
+        fillParallel(dstArray, 0, array.length, dstArray.length);
+    }
+
+    // Short Arrays //
+    /**
+     * Copies the first {@code outputArraySize} elements of the {@code srcArray} into a new array.
+     * @see #partArray(byte[], int)
+     * @since 1.2
+     */
+    public static short[] partArray(short[] srcArray, int outputArraySize) throws OutputArraySizeTooLargeException {
+        return partArray(srcArray, outputArraySize, 0);
+    }
+
+    /**
+     * Copies {@code outputArraySize} elements of the {@code srcArray}, starting at {@code srcArrayStartingPosition},
+     * into a new array.
+     * @see #partArray(byte[], int, int)
+     * @since 1.2
+     */
+    public static short[] partArray(short[] srcArray, int outputArraySize, int srcArrayStartingPosition) throws OutputArraySizeTooLargeException {
+        short[] partArray = new short[outputArraySize];
+        partArray(srcArray, srcArrayStartingPosition, partArray, 0, outputArraySize);
+        return partArray;
+    }
+
+    /**
+     * Copies {@code length} elements of the {@code srcArray} into the {@code dstArray}, without allocating a new array.
+     * @see #partArray(byte[], int, byte[], int, int)
+     * @since 1.2
+     */
+    public static void partArray(short[] srcArray, int srcOffset, short[] dstArray, int dstOffset, int length) throws OutputArraySizeTooLargeException {
+        try {
+            System.arraycopy(srcArray, srcOffset, dstArray, dstOffset, length);
+        } catch (IndexOutOfBoundsException e) {
+            throw new OutputArraySizeTooLargeException("The array could not be copied because the length is bigger than the srcArray or the dstArray", e);
+        }
+    }
+
+    /**
+     * Inverts all bits of all elements in an array.
+     * @param array the array you want to invert
+     * @return a new array containing the inverted elements
+     * @throws EmptyArrayException When the {@code array} is null.
+     * @since 1.2
+     */
+    public static short[] invertArray(short[] array) throws EmptyArrayException {
+        if (array == null) {
+            throw new EmptyArrayException("The array is null and cannot be null in this method.");
+        }
+        short[] outputArray = new short[array.length];
+        invertArray(array, 0, outputArray, 0, array.length);
+        return outputArray;
+    }
+
+    /**
+     * Inverts {@code length} elements of the {@code srcArray} into the {@code dstArray}, without allocating a new array.
+     * @see #invertArray(byte[], int, byte[], int, int)
+     * @since 1.2
+     */
+    public static void invertArray(short[] srcArray, int srcOffset, short[] dstArray, int dstOffset, int length) throws EmptyArrayException {
+        checkRange(srcArray, srcArray == null ? 0 : srcArray.length, srcOffset, dstArray, dstArray == null ? 0 : dstArray.length, dstOffset, length);
+        if (ParallelRanges.isWorthIt((long) length * Short.BYTES)) {
+            ParallelRanges.forEach(dstOffset, length, Short.BYTES, (from, to) -> invertRange(srcArray, srcOffset + from, dstArray, dstOffset + from, to - from));
+        } else {
+            invertRange(srcArray, srcOffset, dstArray, dstOffset, length);
+        }
+    }
+
+    private static void invertRange(short[] srcArray, int srcOffset, short[] dstArray, int dstOffset, int length) {
+        for (int i = 0; i < length; i++) {
+            dstArray[dstOffset + i] = (short) ~srcArray[srcOffset + i];
+        }
+    }
+
+    /**
+     * Repeats an array into a new array {@code repeat} times.
+     * @see #repeatArray(byte[], int)
+     * @since 1.2
+     */
+    public static short[] repeatArray(short[] array, int repeat) {
+        short[] result = new short[repeatedLength(array.length, repeat)];
+        repeatArray(array, 0, array.length, result, 0, repeat);
+        return result;
+    }
+
+    /**
+     * Repeats a part of an array {@code repeat} times into the {@code dstArray}, without allocating a new array.
+     * @see #repeatArray(byte[], int, int, byte[], int, int)
+     * @since 1.2
+     */
+    public static void repeatArray(short[] srcArray, int srcOffset, int length, short[] dstArray, int dstOffset, int repeat) {
+        repeat(srcArray, srcOffset, length, dstArray, dstOffset, dstArray.length, repeatedLength(length, repeat));
+    }
+
+    /**
+     * Fills the whole {@code dstArray} with copies of the {@code array}, without allocating a new array.
+     * @see #repeatInto(byte[], byte[])
+     * @since 1.2
+     */
+    public static void repeatInto(short[] array, short[] dstArray) {
+        repeatInto(array, array.length, dstArray, dstArray.length);
+    }
+
+    // Int Arrays //
+    /**
+     * Copies the first {@code outputArraySize} elements of the {@code srcArray} into a new array.
+     * @see #partArray(byte[], int)
+     * @since 1.2
+     */
+    public static int[] partArray(int[] srcArray, int outputArraySize) throws OutputArraySizeTooLargeException {
+        return partArray(srcArray, outputArraySize, 0);
+    }
+
+    /**
+     * Copies {@code outputArraySize} elements of the {@code srcArray}, starting at {@code srcArrayStartingPosition},
+     * into a new array.
+     * @see #partArray(byte[], int, int)
+     * @since 1.2
+     */
+    public static int[] partArray(int[] srcArray, int outputArraySize, int srcArrayStartingPosition) throws OutputArraySizeTooLargeException {
+        int[] partArray = new int[outputArraySize];
+        partArray(srcArray, srcArrayStartingPosition, partArray, 0, outputArraySize);
+        return partArray;
+    }
+
+    /**
+     * Copies {@code length} elements of the {@code srcArray} into the {@code dstArray}, without allocating a new array.
+     * @see #partArray(byte[], int, byte[], int, int)
+     * @since 1.2
+     */
+    public static void partArray(int[] srcArray, int srcOffset, int[] dstArray, int dstOffset, int length) throws OutputArraySizeTooLargeException {
+        try {
+            System.arraycopy(srcArray, srcOffset, dstArray, dstOffset, length);
+        } catch (IndexOutOfBoundsException e) {
+            throw new OutputArraySizeTooLargeException("The array could not be copied because the length is bigger than the srcArray or the dstArray", e);
+        }
+    }
+
+    /**
+     * Inverts all bits of all elements in an array.
+     * @param array the array you want to invert
+     * @return a new array containing the inverted elements
+     * @throws EmptyArrayException When the {@code array} is null.
+     * @since 1.2
+     */
+    public static int[] invertArray(int[] array) throws EmptyArrayException {
+        if (array == null) {
+            throw new EmptyArrayException("The array is null and cannot be null in this method.");
+        }
+        int[] outputArray = new int[array.length];
+        invertArray(array, 0, outputArray, 0, array.length);
+        return outputArray;
+    }
+
+    /**
+     * Inverts {@code length} elements of the {@code srcArray} into the {@code dstArray}, without allocating a new array.
+     * @see #invertArray(byte[], int, byte[], int, int)
+     * @since 1.2
+     */
+    public static void invertArray(int[] srcArray, int srcOffset, int[] dstArray, int dstOffset, int length) throws EmptyArrayException {
+        checkRange(srcArray, srcArray == null ? 0 : srcArray.length, srcOffset, dstArray, dstArray == null ? 0 : dstArray.length, dstOffset, length);
+        if (ParallelRanges.isWorthIt((long) length * Integer.BYTES)) {
+            ParallelRanges.forEach(dstOffset, length, Integer.BYTES, (from, to) -> invertRange(srcArray, srcOffset + from, dstArray, dstOffset + from, to - from));
+        } else {
+            invertRange(srcArray, srcOffset, dstArray, dstOffset, length);
+        }
+    }
+
+    private static void invertRange(int[] srcArray, int srcOffset, int[] dstArray, int dstOffset, int length) {
+        for (int i = 0; i < length; i++) {
+            dstArray[dstOffset + i] = ~srcArray[srcOffset + i];
+        }
+    }
+
+    /**
+     * Repeats an array into a new array {@code repeat} times.
+     * @see #repeatArray(byte[], int)
+     * @since 1.2
+     */
+    public static int[] repeatArray(int[] array, int repeat) {
+        int[] result = new int[repeatedLength(array.length, repeat)];
+        repeatArray(array, 0, array.length, result, 0, repeat);
+        return result;
+    }
+
+    /**
+     * Repeats a part of an array {@code repeat} times into the {@code dstArray}, without allocating a new array.
+     * @see #repeatArray(byte[], int, int, byte[], int, int)
+     * @since 1.2
+     */
+    public static void repeatArray(int[] srcArray, int srcOffset, int length, int[] dstArray, int dstOffset, int repeat) {
+        repeat(srcArray, srcOffset, length, dstArray, dstOffset, dstArray.length, repeatedLength(length, repeat));
+    }
+
+    /**
+     * Fills the whole {@code dstArray} with copies of the {@code array}, without allocating a new array.
+     * @see #repeatInto(byte[], byte[])
+     * @since 1.2
+     */
+    public static void repeatInto(int[] array, int[] dstArray) {
+        repeatInto(array, array.length, dstArray, dstArray.length);
+    }
+
+    // Long Arrays //
+    /**
+     * Copies the first {@code outputArraySize} elements of the {@code srcArray} into a new array.
+     * @see #partArray(byte[], int)
+     * @since 1.2
+     */
+    public static long[] partArray(long[] srcArray, int outputArraySize) throws OutputArraySizeTooLargeException {
+        return partArray(srcArray, outputArraySize, 0);
+    }
+
+    /**
+     * Copies {@code outputArraySize} elements of the {@code srcArray}, starting at {@code srcArrayStartingPosition},
+     * into a new array.
+     * @see #partArray(byte[], int, int)
+     * @since 1.2
+     */
+    public static long[] partArray(long[] srcArray, int outputArraySize, int srcArrayStartingPosition) throws OutputArraySizeTooLargeException {
+        long[] partArray = new long[outputArraySize];
+        partArray(srcArray, srcArrayStartingPosition, partArray, 0, outputArraySize);
+        return partArray;
+    }
+
+    /**
+     * Copies {@code length} elements of the {@code srcArray} into the {@code dstArray}, without allocating a new array.
+     * @see #partArray(byte[], int, byte[], int, int)
+     * @since 1.2
+     */
+    public static void partArray(long[] srcArray, int srcOffset, long[] dstArray, int dstOffset, int length) throws OutputArraySizeTooLargeException {
+        try {
+            System.arraycopy(srcArray, srcOffset, dstArray, dstOffset, length);
+        } catch (IndexOutOfBoundsException e) {
+            throw new OutputArraySizeTooLargeException("The array could not be copied because the length is bigger than the srcArray or the dstArray", e);
+        }
+    }
+
+    /**
+     * Inverts all bits of all elements in an array.
+     * @param array the array you want to invert
+     * @return a new array containing the inverted elements
+     * @throws EmptyArrayException When the {@code array} is null.
+     * @since 1.2
+     */
+    public static long[] invertArray(long[] array) throws EmptyArrayException {
+        if (array == null) {
+            throw new EmptyArrayException("The array is null and cannot be null in this method.");
+        }
+        long[] outputArray = new long[array.length];
+        invertArray(array, 0, outputArray, 0, array.length);
+        return outputArray;
+    }
+
+    /**
+     * Inverts {@code length} elements of the {@code srcArray} into the {@code dstArray}, without allocating a new array.
+     * @see #invertArray(byte[], int, byte[], int, int)
+     * @since 1.2
+     */
+    public static void invertArray(long[] srcArray, int srcOffset, long[] dstArray, int dstOffset, int length) throws EmptyArrayException {
+        checkRange(srcArray, srcArray == null ? 0 : srcArray.length, srcOffset, dstArray, dstArray == null ? 0 : dstArray.length, dstOffset, length);
+        if (ParallelRanges.isWorthIt((long) length * Long.BYTES)) {
+            ParallelRanges.forEach(dstOffset, length, Long.BYTES, (from, to) -> invertRange(srcArray, srcOffset + from, dstArray, dstOffset + from, to - from));
+        } else {
+            invertRange(srcArray, srcOffset, dstArray, dstOffset, length);
+        }
+    }
+
+    private static void invertRange(long[] srcArray, int srcOffset, long[] dstArray, int dstOffset, int length) {
+        for (int i = 0; i < length; i++) {
+            dstArray[dstOffset + i] = ~srcArray[srcOffset + i];
+        }
+    }
+
+    /**
+     * Repeats an array into a new array {@code repeat} times.
+     * @see #repeatArray(byte[], int)
+     * @since 1.2
+     */
+    public static long[] repeatArray(long[] array, int repeat) {
+        long[] result = new long[repeatedLength(array.length, repeat)];
+        repeatArray(array, 0, array.length, result, 0, repeat);
+        return result;
+    }
+
+    /**
+     * Repeats a part of an array {@code repeat} times into the {@code dstArray}, without allocating a new array.
+     * @see #repeatArray(byte[], int, int, byte[], int, int)
+     * @since 1.2
+     */
+    public static void repeatArray(long[] srcArray, int srcOffset, int length, long[] dstArray, int dstOffset, int repeat) {
+        repeat(srcArray, srcOffset, length, dstArray, dstOffset, dstArray.length, repeatedLength(length, repeat));
+    }
+
+    /**
+     * Fills the whole {@code dstArray} with copies of the {@code array}, without allocating a new array.
+     * @see #repeatInto(byte[], byte[])
+     * @since 1.2
+     */
+    public static void repeatInto(long[] array, long[] dstArray) {
+        repeatInto(array, array.length, dstArray, dstArray.length);
+    }
+
+    // Char Arrays //
+    /**
+     * Copies the first {@code outputArraySize} elements of the {@code srcArray} into a new array.
+     * @see #partArray(byte[], int)
+     * @since 1.2
+     */
+    public static char[] partArray(char[] srcArray, int outputArraySize) throws OutputArraySizeTooLargeException {
+        return partArray(srcArray, outputArraySize, 0);
+    }
+
+    /**
+     * Copies {@code outputArraySize} elements of the {@code srcArray}, starting at {@code srcArrayStartingPosition},
+     * into a new array.
+     * @see #partArray(byte[], int, int)
+     * @since 1.2
+     */
+    public static char[] partArray(char[] srcArray, int outputArraySize, int srcArrayStartingPosition) throws OutputArraySizeTooLargeException {
+        char[] partArray = new char[outputArraySize];
+        partArray(srcArray, srcArrayStartingPosition, partArray, 0, outputArraySize);
+        return partArray;
+    }
+
+    /**
+     * Copies {@code length} elements of the {@code srcArray} into the {@code dstArray}, without allocating a new array.
+     * @see #partArray(byte[], int, byte[], int, int)
+     * @since 1.2
+     */
+    public static void partArray(char[] srcArray, int srcOffset, char[] dstArray, int dstOffset, int length) throws OutputArraySizeTooLargeException {
+        try {
+            System.arraycopy(srcArray, srcOffset, dstArray, dstOffset, length);
+        } catch (IndexOutOfBoundsException e) {
+            throw new OutputArraySizeTooLargeException("The array could not be copied because the length is bigger than the srcArray or the dstArray", e);
+        }
+    }
+
+    /**
+     * Inverts all bits of all elements in an array.
+     * @param array the array you want to invert
+     * @return a new array containing the inverted elements
+     * @throws EmptyArrayException When the {@code array} is null.
+     * @since 1.2
+     */
+    public static char[] invertArray(char[] array) throws EmptyArrayException {
+        if (array == null) {
+            throw new EmptyArrayException("The array is null and cannot be null in this method.");
         }
+        char[] outputArray = new char[array.length];
+        invertArray(array, 0, outputArray, 0, array.length);
+        return outputArray;
+    }
+
+    /**
+     * Inverts {@code length} elements of the {@code srcArray} into the {@code dstArray}, without allocating a new array.
+     * @see #invertArray(byte[], int, byte[], int, int)
+     * @since 1.2
+     */
+    public static void invertArray(char[] srcArray, int srcOffset, char[] dstArray, int dstOffset, int length) throws EmptyArrayException {
+        checkRange(srcArray, srcArray == null ? 0 : srcArray.length, srcOffset, dstArray, dstArray == null ? 0 : dstArray.length, dstOffset, length);
+        if (ParallelRanges.isWorthIt((long) length * Character.BYTES)) {
+            ParallelRanges.forEach(dstOffset, length, Character.BYTES, (from, to) -> invertRange(srcArray, srcOffset + from, dstArray, dstOffset + from, to - from));
+        } else {
+            invertRange(srcArray, srcOffset, dstArray, dstOffset, length);
+        }
+    }
+
+    private static void invertRange(char[] srcArray, int srcOffset, char[] dstArray, int dstOffset, int length) {
+        for (int i = 0; i < length; i++) {
+            dstArray[dstOffset + i] = (char) ~srcArray[srcOffset + i];
+        }
+    }
+
+    /**
+     * Repeats an array into a new array {@code repeat} times.
+     * @see #repeatArray(byte[], int)
+     * @since 1.2
+     */
+    public static char[] repeatArray(char[] array, int repeat) {
+        char[] result = new char[repeatedLength(array.length, repeat)];
+        repeatArray(array, 0, array.length, result, 0, repeat);
         return result;
     }
 
+    /**
+     * Repeats a part of an array {@code repeat} times into the {@code dstArray}, without allocating a new array.
+     * @see #repeatArray(byte[], int, int, byte[], int, int)
+     * @since 1.2
+     */
+    public static void repeatArray(char[] srcArray, int srcOffset, int length, char[] dstArray, int dstOffset, int repeat) {
+        repeat(srcArray, srcOffset, length, dstArray, dstOffset, dstArray.length, repeatedLength(length, repeat));
+    }
+
+    /**
+     * Fills the whole {@code dstArray} with copies of the {@code array}, without allocating a new array.
+     * @see #repeatInto(byte[], byte[])
+     * @since 1.2
+     */
+    public static void repeatInto(char[] array, char[] dstArray) {
+        repeatInto(array, array.length, dstArray, dstArray.length);
+    }
+
+    // Float Arrays //
+    /**
+     * Copies the first {@code outputArraySize} elements of the {@code srcArray} into a new array.
+     * @see #partArray(byte[], int)
+     * @since 1.2
+     */
+    public static float[] partArray(float[] srcArray, int outputArraySize) throws OutputArraySizeTooLargeException {
+        return partArray(srcArray, outputArraySize, 0);
+    }
+
+    /**
+     * Copies {@code outputArraySize} elements of the {@code srcArray}, starting at {@code srcArrayStartingPosition},
+     * into a new array.
+     * @see #partArray(byte[], int, int)
+     * @since 1.2
+     */
+    public static float[] partArray(float[] srcArray, int outputArraySize, int srcArrayStartingPosition) throws OutputArraySizeTooLargeException {
+        float[] partArray = new float[outputArraySize];
+        partArray(srcArray, srcArrayStartingPosition, partArray, 0, outputArraySize);
+        return partArray;
+    }
+
+    /**
+     * Copies {@code length} elements of the {@code srcArray} into the {@code dstArray}, without allocating a new array.
+     * @see #partArray(byte[], int, byte[], int, int)
+     * @since 1.2
+     */
+    public static void partArray(float[] srcArray, int srcOffset, float[] dstArray, int dstOffset, int length) throws OutputArraySizeTooLargeException {
+        try {
+            System.arraycopy(srcArray, srcOffset, dstArray, dstOffset, length);
+        } catch (IndexOutOfBoundsException e) {
+            throw new OutputArraySizeTooLargeException("The array could not be copied because the length is bigger than the srcArray or the dstArray", e);
+        }
+    }
+
+    /**
+     * Repeats an array into a new array {@code repeat} times.
+     * @see #repeatArray(byte[], int)
+     * @since 1.2
+     */
+    public static float[] repeatArray(float[] array, int repeat) {
+        float[] result = new float[repeatedLength(array.length, repeat)];
+        repeatArray(array, 0, array.length, result, 0, repeat);
+        return result;
+    }
+
+    /**
+     * Repeats a part of an array {@code repeat} times into the {@code dstArray}, without allocating a new array.
+     * @see #repeatArray(byte[], int, int, byte[], int, int)
+     * @since 1.2
+     */
+    public static void repeatArray(float[] srcArray, int srcOffset, int length, float[] dstArray, int dstOffset, int repeat) {
+        repeat(srcArray, srcOffset, length, dstArray, dstOffset, dstArray.length, repeatedLength(length, repeat));
+    }
+
+    /**
+     * Fills the whole {@code dstArray} with copies of the {@code array}, without allocating a new array.
+     * @see #repeatInto(byte[], byte[])
+     * @since 1.2
+     */
+    public static void repeatInto(float[] array, float[] dstArray) {
+        repeatInto(array, array.length, dstArray, dstArray.length);
+    }
+
+    // Double Arrays //
+    /**
+     * Copies the first {@code outputArraySize} elements of the {@code srcArray} into a new array.
+     * @see #partArray(byte[], int)
+     * @since 1.2
+     */
+    public static double[] partArray(double[] srcArray, int outputArraySize) throws OutputArraySizeTooLargeException {
+        return partArray(srcArray, outputArraySize, 0);
+    }
+
+    /**
+     * Copies {@code outputArraySize} elements of the {@code srcArray}, starting at {@code srcArrayStartingPosition},
+     * into a new array.
+     * @see #partArray(byte[], int, int)
+     * @since 1.2
+     */
+    public static double[] partArray(double[] srcArray, int outputArraySize, int srcArrayStartingPosition) throws OutputArraySizeTooLargeException {
+        double[] partArray = new double[outputArraySize];
+        partArray(srcArray, srcArrayStartingPosition, partArray, 0, outputArraySize);
+        return partArray;
+    }
+
+    /**
+     * Copies {@code length} elements of the {@code srcArray} into the {@code dstArray}, without allocating a new array.
+     * @see #partArray(byte[], int, byte[], int, int)
+     * @since 1.2
+     */
+    public static void partArray(double[] srcArray, int srcOffset, double[] dstArray, int dstOffset, int length) throws OutputArraySizeTooLargeException {
+        try {
+            System.arraycopy(srcArray, srcOffset, dstArray, dstOffset, length);
+        } catch (IndexOutOfBoundsException e) {
+            throw new OutputArraySizeTooLargeException("The array could not be copied because the length is bigger than the srcArray or the dstArray", e);
+        }
+    }
+
+    /**
+     * Repeats an array into a new array {@code repeat} times.
+     * @see #repeatArray(byte[], int)
+     * @since 1.2
+     */
+    public static double[] repeatArray(double[] array, int repeat) {
+        double[] result = new double[repeatedLength(array.length, repeat)];
+        repeatArray(array, 0, array.length, result, 0, repeat);
+        return result;
+    }
+
+    /**
+     * Repeats a part of an array {@code repeat} times into the {@code dstArray}, without allocating a new array.
+     * @see #repeatArray(byte[], int, int, byte[], int, int)
+     * @since 1.2
+     */
+    public static void repeatArray(double[] srcArray, int srcOffset, int length, double[] dstArray, int dstOffset, int repeat) {
+        repeat(srcArray, srcOffset, length, dstArray, dstOffset, dstArray.length, repeatedLength(length, repeat));
+    }
+
+    /**
+     * Fills the whole {@code dstArray} with copies of the {@code array}, without allocating a new array.
+     * @see #repeatInto(byte[], byte[])
+     * @since 1.2
+     */
+    public static void repeatInto(double[] array, double[] dstArray) {
+        repeatInto(array, array.length, dstArray, dstArray.length);
+    }
+
+    // Parallelism //
+    /**
+     * Sets the size from which {@code invertArray}, {@code repeatArray}, {@code repeatInto} and the hexadecimal
+     * encoding split their work over the threads of the {@link java.util.concurrent.ForkJoinPool#commonPool() common
+     * pool}. Below it, and when the common pool has only one thread, they stay on the calling thread, because starting
+     * the tasks costs more than they win. The work is split at cache line boundaries of the array, counted from its
+     * first index.
+     * @param bytes the amount of bytes that is written; {@value ParallelRanges#DEFAULT_THRESHOLD} by default
+     * @throws IllegalArgumentException when {@code bytes} is negative
+     * @since 1.2
+     */
+    public static void setParallelThreshold(int bytes) {
+        ParallelRanges.setThreshold(bytes);
+    }
+
+    /**
+     * @return the size in bytes from which array operations run in parallel
+     * @see #setParallelThreshold(int)
+     * @since 1.2
+     */
+    public static int getParallelThreshold() {
+        return ParallelRanges.getThreshold();
+    }
+
+    // Repeating //
+    /**
+     * The amount of elements that is filled before {@link #fillParallel(Object, int, int, int)} splits the work; each
+     * task copies from this part of the array
+     */
+    private static final int PARALLEL_FILL_CHUNK = 1 << 20;
+
+    /**
+     * @return {@code length * repeat}
+     * @throws IllegalArgumentException when {@code repeat} is negative or the result overflows an int
+     */
+    private static int repeatedLength(int length, int repeat) {
+        if (repeat < 0) {
+            throw new IllegalArgumentException("The array cannot be repeated a negative amount of times.");
+        }
+        try {
+            return Math.multiplyExact(length, repeat);
+        } catch (ArithmeticException e) {
+            throw new IllegalArgumentException("An array of length " + length + " repeated " + repeat + " times is bigger than the maximum array size.", e);
+        }
+    }
+
+    /**
+     * Copies the part once, then doubles the filled part with {@link System#arraycopy} until {@code total} elements are
+     * filled. This takes log2(repeat) copies instead of one store per element. From the
+     * {@link #setParallelThreshold(int) parallel threshold} on, the array is filled from several threads instead.
+     * @param srcArray and {@code dstArray} are arrays of the same primitive type
+     */
+    private static void repeat(Object srcArray, int srcOffset, int length, Object dstArray, int dstOffset, int dstLength, int total) {
+        if (dstOffset < 0 || dstOffset > dstLength - total) {
+            throw new IndexOutOfBoundsException("The repeated array of length " + total + " does not fit in an array of length " + dstLength + " from offset " + dstOffset);
+        }
+        if (total == 0) return;
+        System.arraycopy(srcArray, srcOffset, dstArray, dstOffset, length);
+        fill(dstArray, dstOffset, length, total);
+    }
+
+    private static void repeatInto(Object array, int length, Object dstArray, int dstLength) {
+        if (dstLength == 0) return;
+        if (length == 0) {
+            throw new IllegalArgumentException("The dstArray cannot be filled with an empty array.");
+        }
+        System.arraycopy(array, 0, dstArray, 0, Math.min(length, dstLength));
+        fill(dstArray, 0, length, dstLength);
+    }
+
+    private static void fill(Object array, int offset, int patternLength, int total) {
+        if (ParallelRanges.isWorthIt((long) total * elementSize(array))) {
+            fillParallel(array, offset, patternLength, total);
+        } else {
+            doublingFill(array, offset, Math.min(patternLength, total), total);
+        }
+    }
+
+    /**
+     * Repeats the first {@code filled} elements after {@code offset} until {@code total} elements are filled.
+     */
+    private static void doublingFill(Object array, int offset, int filled, int total) {
+        while (filled < total) {
+            int copy = Math.min(filled, total - filled);
+            System.arraycopy(array, offset, array, offset + filled, copy);
+            filled += copy;
+        }
+    }
+
+    /**
+     * Fills a seed of whole patterns of about {@link #PARALLEL_FILL_CHUNK} elements, then copies the seed into the rest
+     * of the array from several threads. The seed holds whole patterns, so every element after it is the element of the
+     * seed at the same position modulo the seed length.
+     * @param array an array whose {@code patternLength} elements from {@code offset} on contain the pattern
+     */
+    private static void fillParallel(final Object array, final int offset, int patternLength, int total) {
+        final int seed = Math.min(total, Math.max(patternLength, PARALLEL_FILL_CHUNK / patternLength * patternLength));
+        doublingFill(array, offset, Math.min(patternLength, total), seed);
+        ParallelRanges.forEach(offset + seed, total - seed, elementSize(array), (from, to) -> {
+            int position = from;
+            while (position < to) {
+                int seedPosition = position % seed;
+                int copy = Math.min(seed - seedPosition, to - position);
+                System.arraycopy(array, offset + seedPosition, array, offset + seed + position, copy);
+                position += copy;
+            }
+        });
+    }
+
+    /**
+     * @return the size in bytes of an element of a primitive array
+     */
+    private static int elementSize(Object array) {
+        if (array instanceof byte[]) return Byte.BYTES;
+        if (array instanceof short[] || array instanceof char[]) return Short.BYTES;
+        if (array instanceof int[] || array instanceof float[]) return Integer.BYTES;
+        return Long.BYTES;
+    }
+
+    /**
+     * Checks that both arrays exist and that {@code length} elements fit in them from their offsets.
+     * @throws EmptyArrayException when one of the arrays is null
+     */
+    private static void checkRange(Object srcArray, int srcLength, int srcOffset, Object dstArray, int dstLength, int dstOffset, int length) throws EmptyArrayException {
+        if (srcArray == null || dstArray == null) {
+            throw new EmptyArrayException("The srcArray and dstArray cannot be null in this method.");
+        }
+        if (length < 0 || srcOffset < 0 || dstOffset < 0 || srcOffset > srcLength - length || dstOffset > dstLength - length) {
+            throw new IndexOutOfBoundsException("The range [" + srcOffset + ", " + srcOffset + " + " + length + ") of an array of length " + srcLength
+                    + " cannot be written to the range [" + dstOffset + ", " + dstOffset + " + " + length + ") of an array of length " + dstLength);
+        }
+    }
+
     // HEX
-    private static final byte[] HEX_ARRAY = "0123456789ABCDEF".getBytes(StandardCharsets.US_ASCII);
+    private static final HexCodec HEX_WITH_SPACES = HexCodec.UPPER_CASE.withSeparator(' ', 1).withTrailingSeparator();
     /**
      * Byte array to hex string.
      * Will use the {@code ASCII encoding}.
      * @param bytes the byte array you want to transform into a string
      * @return A String containing the bytes in hex form
+     * @see HexCodec
      */
     public static String bytesToHex(byte[] bytes) {
-        byte[] hexChars = new byte[bytes.length * 2];
-        for (int j = 0; j < bytes.length; j++) {
-            int v = bytes[j] & 0xFF;
-            hexChars[j * 2] = HEX_ARRAY[v >>> 4];
-            hexChars[j * 2 + 1] = HEX_ARRAY[v & 0x0F];
-        }
-        return new String(hexChars, StandardCharsets.US_ASCII);
+        return HexCodec.UPPER_CASE.encode(bytes);
     }
 
     /**
@@ -109,45 +899,30 @@ public abstract class ArrayUtils {
      * @return A String containing the bytes in hex form
      */
     public static String bytesToHex(byte[] bytes, Charset stringEncoding) {
-        byte[] hexChars = new byte[bytes.length * 2];
-        for (int j = 0; j < bytes.length; j++) {
-            int v = bytes[j] & 0xFF;
-            hexChars[j * 2] = HEX_ARRAY[v >>> 4];
-            hexChars[j * 2 + 1] = HEX_ARRAY[v & 0x0F];
-        }
+        byte[] hexChars = new byte[HexCodec.UPPER_CASE.encodedLength(bytes.length)];
+        HexCodec.UPPER_CASE.encode(bytes, 0, bytes.length, hexChars, 0);
         return new String(hexChars, stringEncoding);
     }
 
     /**
      * Byte array to hex string. Will use the {@code ASCII encoding}.
      * @param bytes the byte array you want to transform into a string
-     * @param addSpace if true will add a space between every hex element
+     * @param addSpace if true will add a space after every hex element
      * @return A String containing the bytes in hex form
      */
     public static String bytesToHex(byte[] bytes, boolean addSpace) {
-        if (!addSpace) {
-            byte[] hexChars = new byte[bytes.length * 2];
-            for (int j = 0; j < bytes.length; j++) {
-                int v = bytes[j] & 0xFF;
-                hexChars[j * 2] = HEX_ARRAY[v >>> 4];
-                hexChars[j * 2 + 1] = HEX_ARRAY[v & 0x0F];
-            }
-            return new String(hexChars, StandardCharsets.US_ASCII);
-        } else {
-            byte[] hexChars = new byte[bytes.length * 2];
-            for (int j = 0; j < bytes.length; j++) {
-                int v = bytes[j] & 0xFF;
-                hexChars[j * 2] = HEX_ARRAY[v >>> 4];
-                hexChars[j * 2 + 1] = HEX_ARRAY[v & 0x0F];
-            }
-            String temp = new String(hexChars, StandardCharsets.US_ASCII);
-            String[] tempArray = splitStringEvery(temp, 2);
-            StringBuilder output = new StringBuilder();
-            for (String s : tempArray) {
-                output.append(s).append(" ");
-            }
-            return output.toString();
-        }
+        return addSpace ? HEX_WITH_SPACES.encode(bytes) : HexCodec.UPPER_CASE.encode(bytes);
+    }
+
+    /**
+     * Hex string to byte array. This is the inverse of {@link #bytesToHex(byte[])}.
+     * @param hex a String containing bytes in hex form, in upper or lower case, e.g. 00014F
+     * @return an array of bytes e.g. {00, 01, 4F}
+     * @throws IllegalArgumentException if the String contains other characters than hexadecimal digits, or has an odd length
+     * @since 1.2
+     */
+    public static byte[] hexToBytes(String hex) {
+        return HexCodec.UPPER_CASE.decode(hex);
     }
 
     // String arrays //
@@ -156,20 +931,182 @@ public abstract class ArrayUtils {
      * splits a string every {@code interval} th character
      * @param s the string you want to split
      * @param interval the interval
-     * @return a String array containing {@code interval} characters per array
+     * @return a String array containing {@code interval} characters per array; empty for an empty string
+     * @throws IllegalArgumentException if the {@code interval} is not positive
+     * @see #splitStringEveryLazily(CharSequence, int) for a variant that does not copy the pieces
      */
     public static String[] splitStringEvery(String s, int interval) {
-        int arrayLength = (int) Math.ceil(((s.length() / (double)interval)));
-        String[] result = new String[arrayLength];
+        String[] result = new String[pieceCount(s, interval)];
 
         int j = 0;
-        int lastIndex = result.length - 1;
-        for (int i = 0; i < lastIndex; i++) {
-            result[i] = s.substring(j, j + interval);
+        for (int i = 0; i < result.length; i++) {
+            result[i] = s.substring(j, Math.min(j + interval, s.length()));
             j += interval;
-        } //Add the last bit
-        result[lastIndex] = s.substring(j);
+        }
 
         return result;
     }
+
+    /**
+     * Splits a string every {@code interval} th character, like {@link #splitStringEvery(String, int)}, but without
+     * copying: the pieces are views of {@code s} that are only created when they are asked for. Only
+     * {@link CharSequence#toString()} of a piece copies its characters.
+     * <p>The list supports parallel streams: {@code splitStringEveryLazily(s, 80).parallelStream()} splits the pieces
+     * evenly over the threads.</p>
+     * @param s the string you want to split. If it is mutable, like a {@link StringBuilder}, it should not be changed
+     *          while the pieces are in use.
+     * @param interval the amount of characters per piece; the last piece can be shorter
+     * @return an unmodifiable list of the pieces; empty for an empty string
+     * @throws IllegalArgumentException if the {@code interval} is not positive
+     * @since 1.2
+     */
+    public static List<CharSequence> splitStringEveryLazily(CharSequence s, int interval) {
+        return new Pieces(s, interval, pieceCount(s, interval));
+    }
+
+    /**
+     * @param s the string you want to split
+     * @param interval the amount of characters per piece; the last piece can be shorter
+     * @return a {@link Spliterator} over the pieces of {@link #splitStringEveryLazily(CharSequence, int)}, which splits
+     * in halves for {@link java.util.stream.StreamSupport#stream(Spliterator, boolean) parallel streams}
+     * @throws IllegalArgumentException if the {@code interval} is not positive
+     * @since 1.2
+     */
+    public static Spliterator<CharSequence> splitStringEverySpliterator(CharSequence s, int interval) {
+        return new PieceSpliterator(s, interval, 0, pieceCount(s, interval));
+    }
+
+    private static int pieceCount(CharSequence s, int interval) {
+        if (interval <= 0) {
+            throw new IllegalArgumentException("The interval has to be positive.");
+        }
+        return (int) (((long) s.length() + interval - 1) / interval);
+    }
+
+    private static CharSequence piece(CharSequence s, int interval, int index) {
+        int start = index * interval;
+        return new CharSequenceView(s, start, Math.min(start + interval, s.length()));
+    }
+
+    private static final class Pieces extends AbstractList<CharSequence> implements RandomAccess {
+        private final CharSequence s;
+        private final int interval;
+        private final int size;
+
+        Pieces(CharSequence s, int interval, int size) {
+            this.s = s;
+            this.interval = interval;
+            this.size = size;
+        }
+
+        @Override
+        public CharSequence get(int index) {
+            if (index < 0 || index >= size) {
+                throw new IndexOutOfBoundsException("Index " + index + " is outside a list of size " + size);
+            }
+            return piece(s, interval, index);
+        }
+
+        @Override
+        public int size() {
+            return size;
+        }
+
+        @Override
+        public Spliterator<CharSequence> spliterator() {
+            return new PieceSpliterator(s, interval, 0, size);
+        }
+    }
+
+    private static final class PieceSpliterator implements Spliterator<CharSequence> {
+        private final CharSequence s;
+        private final int interval;
+        private int index;
+        private final int end;
+
+        PieceSpliterator(CharSequence s, int interval, int index, int end) {
+            this.s = s;
+            this.interval = interval;
+            this.index = index;
+            this.end = end;
+        }
+
+        @Override
+        public boolean tryAdvance(Consumer<? super CharSequence> action) {
+            if (index >= end) {
+                return false;
+            }
+            action.accept(piece(s, interval, index++));
+            return true;
+        }
+
+        @Override
+        public void forEachRemaining(Consumer<? super CharSequence> action) {
+            while (index < end) {
+                action.accept(piece(s, interval, index++));
+            }
+        }
+
+        @Override
+        public Spliterator<CharSequence> trySplit() {
+            int middle = (index + end) >>> 1;
+            if (middle <= index) {
+                return null;
+            }
+            PieceSpliterator prefix = new PieceSpliterator(s, interval, index, middle);
+            index = middle;
+            return prefix;
+        }
+
+        @Override
+        public long estimateSize() {
+            return end - index;
+        }
+
+        @Override
+        public int characteristics() {
+            return ORDERED | SIZED | SUBSIZED | NONNULL | (s instanceof String ? IMMUTABLE : 0);
+        }
+    }
+
+    /**
+     * A part of a {@link CharSequence}, without a copy of its characters
+     */
+    private static final class CharSequenceView implements CharSequence {
+        private final CharSequence s;
+        private final int start;
+        private final int end;
+
+        CharSequenceView(CharSequence s, int start, int end) {
+            this.s = s;
+            this.start = start;
+            this.end = end;
+        }
+
+        @Override
+        public int length() {
+            return end - start;
+        }
+
+        @Override
+        public char charAt(int index) {
+            if (index < 0 || index >= end - start) {
+                throw new IndexOutOfBoundsException("Index " + index + " is outside a sequence of length " + (end - start));
+            }
+            return s.charAt(start + index);
+        }
+
+        @Override
+        public CharSequence subSequence(int from, int to) {
+            if (from < 0 || to > end - start || from > to) {
+                throw new IndexOutOfBoundsException("The range [" + from + ", " + to + ") is outside a sequence of length " + (end - start));
+            }
+            return new CharSequenceView(s, start + from, start + to);
+        }
+
+        @Override
+        public String toString() {
+            return s.subSequence(start, end).toString();
+        }
+    }
 }
@@ -0,0 +1,382 @@
+package be.jonaseveraert.util.arrays;
+
+import java.lang.ref.Reference;
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
+import java.nio.Buffer;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * <p>A thread-safe pool of scratch buffers, both {@code byte[]} and direct {@link ByteBuffer}s, in size classes of
+ * powers of two from {@link #MIN_SIZE_CLASS} to {@link #MAX_POOLED_SIZE}.</p>
+ * <p>Methods that need a large temporary buffer, like the streaming methods of the compression package, lease one from
+ * the {@link #getShared() shared pool} and give it back when they are done, instead of allocating a new one on every
+ * call. Buffers that are returned to the caller are never taken from the pool.</p>
+ * <p>Code example:</p>
+ * <pre>{@code
+ *     BufferPool pool = BufferPool.getShared();
+ *     byte[] buffer = pool.acquire(64 * 1024);
+ *     try {
+ *         // use the first 64 KiB of the buffer
+ *     } finally {
+ *         pool.release(buffer);
+ *     }
+ * }</pre>
+ * <p>A leased buffer has to be released exactly once and cannot be used anymore afterwards. In
+ * {@link #setDebug(boolean) debug mode} the pool checks this: releasing a buffer twice throws an exception, and a
+ * buffer that is garbage collected without being released is logged as a leak, together with the stack trace of the
+ * call that acquired it. Debug mode is also turned on by the system property {@value #DEBUG_PROPERTY}.</p>
+ *
+ * @author Jonas Everaert
+ * @author <a href="https://jonaseveraert.be">jonaseveraert.be</a>
+ * @since 1.2
+ */
+public final class BufferPool {
+    /**
+     * The smallest buffer that is handed out; smaller requests get a buffer of this size
+     */
+    public static final int MIN_SIZE_CLASS = 4 * 1024;
+    /**
+     * The biggest buffer that is pooled. Bigger requests get a new buffer of exactly the requested size, which is not
+     * kept when it is released.
+     */
+    public static final int MAX_POOLED_SIZE = 1024 * 1024;
+    /**
+     * The default amount of idle buffers that are kept per size class, for heap and direct buffers each
+     */
+    public static final int DEFAULT_MAX_IDLE_PER_CLASS = 8;
+    /**
+     * Setting this system property to {@code true} turns on debug mode for every pool
+     */
+    public static final String DEBUG_PROPERTY = "be.jonaseveraert.util.arrays.BufferPool.debug";
+
+    private static final int MIN_SHIFT = Integer.numberOfTrailingZeros(MIN_SIZE_CLASS);
+    private static final int NUM_CLASSES = Integer.numberOfTrailingZeros(MAX_POOLED_SIZE) - MIN_SHIFT + 1;
+    private static final Logger LOGGER = Logger.getLogger(BufferPool.class.getName());
+
+    private static final BufferPool SHARED = new BufferPool(DEFAULT_MAX_IDLE_PER_CLASS);
+
+    private final ConcurrentLinkedDeque<byte[]>[] idleArrays;
+    private final ConcurrentLinkedDeque<ByteBuffer>[] idleDirect;
+    private final AtomicInteger[] idleArrayCounts;
+    private final AtomicInteger[] idleDirectCounts;
+    private volatile int maxIdlePerClass;
+    private volatile boolean debug = Boolean.getBoolean(DEBUG_PROPERTY);
+    private final Leases leases = new Leases();
+
+    /**
+     * Creates a new, empty pool.
+     * @param maxIdlePerClass the maximum amount of idle buffers kept per size class, for heap and direct buffers each
+     */
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    public BufferPool(int maxIdlePerClass) {
+        setMaxIdlePerClass(maxIdlePerClass);
+        this.idleArrays = new ConcurrentLinkedDeque[NUM_CLASSES];
+        this.idleDirect = new ConcurrentLinkedDeque[NUM_CLASSES];
+        this.idleArrayCounts = new AtomicInteger[NUM_CLASSES];
+        this.idleDirectCounts = new AtomicInteger[NUM_CLASSES];
+        for (int i = 0; i < NUM_CLASSES; i++) {
+            idleArrays[i] = new ConcurrentLinkedDeque<>();
+            idleDirect[i] = new ConcurrentLinkedDeque<>();
+            idleArrayCounts[i] = new AtomicInteger();
+            idleDirectCounts[i] = new AtomicInteger();
+        }
+    }
+
+    /**
+     * @return the pool that is used by the classes of this library
+     */
+    public static BufferPool getShared() {
+        return SHARED;
+    }
+
+    // Heap //
+    /**
+     * Takes an array out of the pool, or creates a new one if there is none available. The contents of the array are
+     * undefined: it can still contain the data of whoever used it before.
+     * @param minSize the minimum length of the array
+     * @return an array with a length of at least {@code minSize}: the size class of {@code minSize}, or exactly
+     * {@code minSize} if it is bigger than {@link #MAX_POOLED_SIZE}. Give it back with {@link #release(byte[])}.
+     * @throws IllegalArgumentException if {@code minSize} is negative
+     */
+    public byte[] acquire(int minSize) {
+        int sizeClass = sizeClass(minSize);
+        byte[] array;
+        if (sizeClass >= 0) {
+            array = idleArrays[sizeClass].pollFirst();
+            if (array != null) {
+                idleArrayCounts[sizeClass].decrementAndGet();
+            } else {
+                array = new byte[MIN_SIZE_CLASS << sizeClass];
+            }
+        } else {
+            array = new byte[minSize];
+        }
+        if (debug) {
+            leases.lease(array);
+        }
+        return array;
+    }
+
+    /**
+     * Gives an array back to the pool. If the pool already holds enough idle arrays of its size, or its length is not a
+     * size class, it is left to the garbage collector.
+     * <p>The array must not be used anymore after calling this method.</p>
+     * @param array an array that was {@link #acquire(int) acquired} from this pool, or null
+     * @throws IllegalStateException in debug mode, if the array was not leased from this pool or was already released
+     */
+    public void release(byte[] array) {
+        if (array == null) return;
+        if (debug) {
+            leases.release(array);
+        }
+        int sizeClass = classOf(array.length);
+        if (sizeClass >= 0 && idleArrayCounts[sizeClass].incrementAndGet() <= maxIdlePerClass) {
+            idleArrays[sizeClass].offerFirst(array);
+        } else if (sizeClass >= 0) {
+            idleArrayCounts[sizeClass].decrementAndGet();
+        }
+    }
+
+    // Direct //
+    /**
+     * Takes a direct buffer out of the pool, or allocates a new one if there is none available. The contents of the
+     * buffer are undefined.
+     * @param minSize the minimum capacity of the buffer
+     * @return a direct buffer with its position at 0 and its limit at {@code minSize}; its capacity is the size class of
+     * {@code minSize}. Give it back with {@link #release(ByteBuffer)}.
+     * @throws IllegalArgumentException if {@code minSize} is negative
+     */
+    public ByteBuffer acquireDirect(int minSize) {
+        int sizeClass = sizeClass(minSize);
+        ByteBuffer buffer;
+        if (sizeClass >= 0) {
+            buffer = idleDirect[sizeClass].pollFirst();
+            if (buffer != null) {
+                idleDirectCounts[sizeClass].decrementAndGet();
+            } else {
+                buffer = ByteBuffer.allocateDirect(MIN_SIZE_CLASS << sizeClass);
+            }
+        } else {
+            buffer = ByteBuffer.allocateDirect(minSize);
+        }
+        // Through Buffer, because ByteBuffer only overrides clear and limit since Java 9
+        ((Buffer) buffer).clear();
+        ((Buffer) buffer).limit(minSize);
+        buffer.order(ByteOrder.BIG_ENDIAN);
+        if (debug) {
+            leases.lease(buffer);
+        }
+        return buffer;
+    }
+
+    /**
+     * Gives a direct buffer back to the pool. It can be released in any state. Heap buffers are ignored.
+     * <p>The buffer must not be used anymore after calling this method.</p>
+     * @param buffer a buffer that was {@link #acquireDirect(int) acquired} from this pool, or null
+     * @throws IllegalStateException in debug mode, if the buffer was not leased from this pool or was already released
+     */
+    public void release(ByteBuffer buffer) {
+        if (buffer == null || !buffer.isDirect()) return;
+        if (debug) {
+            leases.release(buffer);
+        }
+        int sizeClass = classOf(buffer.capacity());
+        if (sizeClass >= 0 && idleDirectCounts[sizeClass].incrementAndGet() <= maxIdlePerClass) {
+            idleDirect[sizeClass].offerFirst(buffer);
+        } else if (sizeClass >= 0) {
+            idleDirectCounts[sizeClass].decrementAndGet();
+        }
+    }
+
+    // Settings and statistics //
+    /**
+     * Removes all idle buffers from the pool.
+     */
+    public void clear() {
+        for (int i = 0; i < NUM_CLASSES; i++) {
+            while (idleArrays[i].pollFirst() != null) {
+                idleArrayCounts[i].decrementAndGet();
+            }
+            while (idleDirect[i].pollFirst() != null) {
+                idleDirectCounts[i].decrementAndGet();
+            }
+        }
+    }
+
+    /**
+     * @param maxIdlePerClass the maximum amount of idle buffers kept per size class, for heap and direct buffers each.
+     *                        Setting this to 0 disables pooling.
+     */
+    public void setMaxIdlePerClass(int maxIdlePerClass) {
+        if (maxIdlePerClass < 0) {
+            throw new IllegalArgumentException("The maximum amount of idle buffers cannot be negative.");
+        }
+        this.maxIdlePerClass = maxIdlePerClass;
+    }
+
+    public int getMaxIdlePerClass() {
+        return maxIdlePerClass;
+    }
+
+    /**
+     * @param debug true to track every lease: releasing a buffer twice then throws an {@link IllegalStateException} and
+     *              buffers that are garbage collected without being released are logged. This makes the pool slower.
+     *              Change it only while no buffers are leased.
+     */
+    public void setDebug(boolean debug) {
+        this.debug = debug;
+    }
+
+    public boolean isDebug() {
+        return debug;
+    }
+
+    /**
+     * @return the amount of buffers waiting in the pool, heap and direct
+     */
+    public int getIdleCount() {
+        int count = 0;
+        for (int i = 0; i < NUM_CLASSES; i++) {
+            count += idleArrayCounts[i].get() + idleDirectCounts[i].get();
+        }
+        return count;
+    }
+
+    /**
+     * @return the amount of bytes held by the buffers waiting in the pool, heap and direct
+     */
+    public long getIdleBytes() {
+        long bytes = 0;
+        for (int i = 0; i < NUM_CLASSES; i++) {
+            bytes += (long) (idleArrayCounts[i].get() + idleDirectCounts[i].get()) * (MIN_SIZE_CLASS << i);
+        }
+        return bytes;
+    }
+
+    /**
+     * @return the amount of buffers that were acquired in debug mode and not released yet
+     */
+    public int getLeasedCount() {
+        return leases.count();
+    }
+
+    /**
+     * @return the amount of buffers that were acquired in debug mode and garbage collected without being released
+     */
+    public long getLeakCount() {
+        leases.detectLeaks();
+        return leases.leakCount.get();
+    }
+
+    /**
+     * @return the size class of a request for {@code minSize} bytes, or -1 if it is too big to be pooled
+     */
+    private static int sizeClass(int minSize) {
+        if (minSize < 0) {
+            throw new IllegalArgumentException("The size of a buffer cannot be negative.");
+        }
+        if (minSize > MAX_POOLED_SIZE) {
+            return -1;
+        }
+        int size = Math.max(minSize, MIN_SIZE_CLASS);
+        // The index of the smallest power of two >= size
+        return 32 - Integer.numberOfLeadingZeros(size - 1) - MIN_SHIFT;
+    }
+
+    /**
+     * @return the size class of a buffer of exactly {@code size} bytes, or -1 if no size class has that size
+     */
+    private static int classOf(int size) {
+        if (size < MIN_SIZE_CLASS || size > MAX_POOLED_SIZE || Integer.bitCount(size) != 1) {
+            return -1;
+        }
+        return Integer.numberOfTrailingZeros(size) - MIN_SHIFT;
+    }
+
+    /**
+     * The buffers that were leased in debug mode. They are only weakly referenced, so that a buffer that is not
+     * released is still garbage collected, which is how a leak is detected.
+     */
+    private static final class Leases {
+        /**
+         * By identity hash code, because ByteBuffers compare by content
+         */
+        private final Map<Integer, List<Lease>> leased = new HashMap<>();
+        private final ReferenceQueue<Object> collected = new ReferenceQueue<>();
+        private final AtomicLong leakCount = new AtomicLong();
+        private int count = 0;
+
+        synchronized void lease(Object buffer) {
+            detectLeaks();
+            Lease lease = new Lease(buffer, collected);
+            leased.computeIfAbsent(lease.hash, k -> new ArrayList<>(1)).add(lease);
+            count++;
+        }
+
+        synchronized void release(Object buffer) {
+            detectLeaks();
+            int hash = System.identityHashCode(buffer);
+            List<Lease> candidates = leased.get(hash);
+            if (candidates != null) {
+                for (int i = 0; i < candidates.size(); i++) {
+                    Lease lease = candidates.get(i);
+                    if (lease.get() == buffer) {
+                        lease.clear();
+                        remove(lease);
+                        return;
+                    }
+                }
+            }
+            throw new IllegalStateException("The buffer was not acquired from this pool in debug mode, or it was already released.");
+        }
+
+        synchronized int count() {
+            return count;
+        }
+
+        synchronized void detectLeaks() {
+            Reference<?> reference;
+            while ((reference = collected.poll()) != null) {
+                Lease lease = (Lease) reference;
+                // Released leases are cleared before they can be enqueued, but check anyway
+                if (remove(lease)) {
+                    leakCount.incrementAndGet();
+                    LOGGER.log(Level.WARNING, "A buffer of the BufferPool was garbage collected without being released. It was acquired here:", lease.acquiredAt);
+                }
+            }
+        }
+
+        private boolean remove(Lease lease) {
+            List<Lease> candidates = leased.get(lease.hash);
+            if (candidates == null || !candidates.remove(lease)) {
+                return false;
+            }
+            if (candidates.isEmpty()) {
+                leased.remove(lease.hash);
+            }
+            count--;
+            return true;
+        }
+    }
+
+    private static final class Lease extends WeakReference<Object> {
+        final int hash;
+        final Throwable acquiredAt = new Throwable("Acquired here");
+
+        Lease(Object buffer, ReferenceQueue<Object> queue) {
+            super(buffer, queue);
+            this.hash = System.identityHashCode(buffer);
+        }
+    }
+}
@@ -0,0 +1,305 @@
+package be.jonaseveraert.util.arrays;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.GatheringByteChannel;
+import java.util.Arrays;
+
+/**
+ * <p>Collects bytes in a list of blocks, like a {@link StringBuilder} for bytes. When the builder is full a new block is
+ * added; the bytes that were already appended are never copied again. The blocks grow with the builder up to
+ * {@link #MAX_BLOCK_SIZE}, so appending is O(1) amortized and the length can go beyond 2 GB.</p>
+ * <p>The bytes can be written with a single gathering write to a channel (e.g. a {@link java.nio.channels.FileChannel}),
+ * without combining them into one array first.</p>
+ * <p>A builder is not thread safe.</p>
+ * <p>Code example:</p>
+ * <pre>{@code
+ *     ByteArrayBuilder builder = new ByteArrayBuilder();
+ *     for (byte[] part : parts) {
+ *         builder.append(part);
+ *     }
+ *     try (FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.WRITE)) {
+ *         builder.writeTo(channel);
+ *     }
+ * }</pre>
+ *
+ * @author Jonas Everaert
+ * @author <a href="https://jonaseveraert.be">jonaseveraert.be</a>
+ * @since 1.2
+ */
+public class ByteArrayBuilder {
+    /**
+     * The maximum size of a block that is allocated by the builder
+     */
+    public static final int MAX_BLOCK_SIZE = 8 * 1024 * 1024;
+    /**
+     * Arrays of at least this size are added as a block by {@link #appendWithoutCopy(byte[])}; smaller ones are copied
+     */
+    private static final int MIN_SHARED_BLOCK_SIZE = 4096;
+    private static final int DEFAULT_INITIAL_CAPACITY = 256;
+
+    private final int initialCapacity;
+    private byte[][] blocks = new byte[8][];
+    /**
+     * The amount of bytes used in every block
+     */
+    private int[] blockLengths = new int[8];
+    private int blockCount = 0;
+    /**
+     * False if the last block is an array of the caller, which cannot be written to
+     */
+    private boolean lastBlockOwned = false;
+    private long length = 0;
+
+    public ByteArrayBuilder() {
+        this(DEFAULT_INITIAL_CAPACITY);
+    }
+
+    /**
+     * @param initialCapacity the size of the first block
+     * @throws IllegalArgumentException if the {@code initialCapacity} is not positive
+     */
+    public ByteArrayBuilder(int initialCapacity) {
+        if (initialCapacity <= 0) {
+            throw new IllegalArgumentException("The initial capacity has to be positive.");
+        }
+        this.initialCapacity = initialCapacity;
+    }
+
+    /**
+     * @return the amount of bytes that were appended
+     */
+    public long length() {
+        return length;
+    }
+
+    public boolean isEmpty() {
+        return length == 0;
+    }
+
+    // Appending //
+    /**
+     * @param b the byte that is appended
+     * @return this builder
+     */
+    public ByteArrayBuilder append(byte b) {
+        int last = writableBlock();
+        blocks[last][blockLengths[last]++] = b;
+        length++;
+        return this;
+    }
+
+    /**
+     * @param bytes the bytes that are copied to the end of this builder
+     * @return this builder
+     */
+    public ByteArrayBuilder append(byte[] bytes) {
+        return append(bytes, 0, bytes.length);
+    }
+
+    /**
+     * @param bytes the array containing the bytes that are copied to the end of this builder
+     * @param offset the index of the first byte that is appended
+     * @param length the amount of bytes that is appended
+     * @return this builder
+     * @throws IndexOutOfBoundsException if the range is not inside the {@code bytes} array
+     */
+    public ByteArrayBuilder append(byte[] bytes, int offset, int length) {
+        if (offset < 0 || length < 0 || offset > bytes.length - length) {
+            throw new IndexOutOfBoundsException("The range [" + offset + ", " + offset + " + " + length + ") is outside an array of length " + bytes.length);
+        }
+        while (length > 0) {
+            int last = writableBlock();
+            int count = Math.min(length, blocks[last].length - blockLengths[last]);
+            System.arraycopy(bytes, offset, blocks[last], blockLengths[last], count);
+            blockLengths[last] += count;
+            this.length += count;
+            offset += count;
+            length -= count;
+        }
+        return this;
+    }
+
+    /**
+     * @param slice the bytes that are copied to the end of this builder
+     * @return this builder
+     */
+    public ByteArrayBuilder append(ByteSlice slice) {
+        return append(slice.asByteBuffer());
+    }
+
+    /**
+     * Appends the remaining bytes of the {@code buffer}, which are consumed.
+     * @param buffer the buffer whose bytes between its position and limit are copied to the end of this builder
+     * @return this builder
+     */
+    public ByteArrayBuilder append(ByteBuffer buffer) {
+        while (buffer.hasRemaining()) {
+            int last = writableBlock();
+            int count = Math.min(buffer.remaining(), blocks[last].length - blockLengths[last]);
+            buffer.get(blocks[last], blockLengths[last], count);
+            blockLengths[last] += count;
+            length += count;
+        }
+        return this;
+    }
+
+    /**
+     * Appends an array without copying it: the array itself becomes a part of this builder. Whoever calls this promises
+     * not to change the array afterwards. Small arrays are copied anyway, since a block of their own would make
+     * writing slower.
+     * @param bytes the bytes that are appended
+     * @return this builder
+     */
+    public ByteArrayBuilder appendWithoutCopy(byte[] bytes) {
+        if (bytes.length < MIN_SHARED_BLOCK_SIZE) {
+            return append(bytes);
+        }
+        addBlock(bytes, bytes.length);
+        lastBlockOwned = false;
+        length += bytes.length;
+        return this;
+    }
+
+    /**
+     * Reads the {@code in} stream until its end and appends everything that was read, directly into the blocks of this
+     * builder.
+     * <p>The stream can return any amount of bytes per read, so this method cannot be used for streams that only return
+     * whole units larger than one byte, such as the frames of an {@code AudioInputStream}: when the space left in a
+     * block is smaller than a unit, those streams return no bytes at all.</p>
+     * @param in the stream; it is not closed
+     * @return the amount of bytes that were read
+     * @throws IOException if an I/O exception occurs, or if the stream returns no bytes twice in a row without reaching
+     * its end
+     */
+    public long readFrom(InputStream in) throws IOException {
+        long total = 0;
+        boolean lastReadEmpty = false;
+        while (true) {
+            int last = writableBlock();
+            int read = in.read(blocks[last], blockLengths[last], blocks[last].length - blockLengths[last]);
+            if (read == -1) {
+                return total;
+            }
+            if (read == 0) {
+                if (lastReadEmpty) {
+                    throw new IOException("The stream returned no bytes twice in a row without reaching its end.");
+                }
+                lastReadEmpty = true;
+                continue;
+            }
+            lastReadEmpty = false;
+            blockLengths[last] += read;
+            length += read;
+            total += read;
+        }
+    }
+
+    /**
+     * Removes all bytes, so that the builder can be used again.
+     */
+    public void clear() {
+        Arrays.fill(blocks, 0, blockCount, null);
+        blockCount = 0;
+        lastBlockOwned = false;
+        length = 0;
+    }
+
+    // Output //
+    /**
+     * Writes all bytes to the {@code out} channel, using as few gathering writes as possible.
+     * @param out the channel; it is not closed
+     * @return the amount of bytes that were written, which is {@link #length()}
+     * @throws IOException if an I/O exception occurs
+     */
+    public long writeTo(GatheringByteChannel out) throws IOException {
+        ByteBuffer[] buffers = new ByteBuffer[blockCount];
+        for (int i = 0; i < blockCount; i++) {
+            buffers[i] = ByteBuffer.wrap(blocks[i], 0, blockLengths[i]);
+        }
+        long written = 0;
+        int first = 0;
+        while (written < length) {
+            written += out.write(buffers, first, buffers.length - first);
+            while (first < buffers.length && !buffers[first].hasRemaining()) {
+                first++;
+            }
+        }
+        return written;
+    }
+
+    /**
+     * Writes all bytes to the {@code out} stream.
+     * @param out the stream; it is not closed
+     * @throws IOException if an I/O exception occurs
+     */
+    public void writeTo(OutputStream out) throws IOException {
+        for (int i = 0; i < blockCount; i++) {
+            out.write(blocks[i], 0, blockLengths[i]);
+        }
+    }
+
+    /**
+     * @return a new array containing all bytes
+     * @throws OutputArraySizeTooLargeException if there are too many bytes for a Java array
+     * @see #toLargeByteArray()
+     */
+    public byte[] toByteArray() throws OutputArraySizeTooLargeException {
+        if (length > Integer.MAX_VALUE - 8) {
+            throw new OutputArraySizeTooLargeException(length + " bytes do not fit in a byte[].");
+        }
+        byte[] bytes = new byte[(int) length];
+        int position = 0;
+        for (int i = 0; i < blockCount; i++) {
+            System.arraycopy(blocks[i], 0, bytes, position, blockLengths[i]);
+            position += blockLengths[i];
+        }
+        return bytes;
+    }
+
+    /**
+     * @return a new array in direct memory containing all bytes, which can be bigger than 2 GB
+     */
+    public LargeByteArray toLargeByteArray() {
+        LargeByteArray array = LargeByteArray.allocate(length);
+        long position = 0;
+        for (int i = 0; i < blockCount; i++) {
+            array.set(position, blocks[i], 0, blockLengths[i]);
+            position += blockLengths[i];
+        }
+        return array;
+    }
+
+    @Override
+    public String toString() {
+        return "ByteArrayBuilder[length=" + length + ", blocks=" + blockCount + "]";
+    }
+
+    // Blocks //
+    /**
+     * @return the index of the last block, after adding a new one if the last block is full or not writable
+     */
+    private int writableBlock() {
+        int last = blockCount - 1;
+        if (last >= 0 && lastBlockOwned && blockLengths[last] < blocks[last].length) {
+            return last;
+        }
+        // Grow with the builder, so that the amount of blocks stays logarithmic until the maximum block size
+        int size = (int) Math.max(initialCapacity, Math.min(length, MAX_BLOCK_SIZE));
+        addBlock(new byte[size], 0);
+        lastBlockOwned = true;
+        return blockCount - 1;
+    }
+
+    private void addBlock(byte[] block, int blockLength) {
+        if (blockCount == blocks.length) {
+            blocks = Arrays.copyOf(blocks, blockCount * 2);
+            blockLengths = Arrays.copyOf(blockLengths, blockCount * 2);
+        }
+        blocks[blockCount] = block;
+        blockLengths[blockCount] = blockLength;
+        blockCount++;
+    }
+}
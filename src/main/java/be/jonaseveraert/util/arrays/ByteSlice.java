@@ -0,0 +1,182 @@
+package be.jonaseveraert.util.arrays;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.WritableByteChannel;
+import java.util.Arrays;
+
+/**
+ * <p>A read-only view of a part of a byte array: the array, an offset and a length. Creating a slice or a sub-slice
+ * never copies the bytes, unlike {@link ArrayUtils#partArray(byte[], int)}.</p>
+ * <p>A slice cannot change the bytes it points to, but the array it was created from can. Whoever creates a slice
+ * promises not to change that part of the array afterwards; slices that are returned by this library are never changed
+ * again by the library.</p>
+ * <p>Code example:</p>
+ * <pre>{@code
+ *     ByteSlice compressed = new Compressor(input).compressToSlice();
+ *     compressed.writeTo(socketOutputStream); // No copy of the compressed bytes is made
+ * }</pre>
+ *
+ * @author Jonas Everaert
+ * @author <a href="https://jonaseveraert.be">jonaseveraert.be</a>
+ * @since 1.2
+ */
+public final class ByteSlice {
+    /**
+     * A slice with length 0
+     */
+    public static final ByteSlice EMPTY = new ByteSlice(new byte[0], 0, 0);
+
+    private final byte[] array;
+    private final int offset;
+    private final int length;
+
+    private ByteSlice(byte[] array, int offset, int length) {
+        this.array = array;
+        this.offset = offset;
+        this.length = length;
+    }
+
+    /**
+     * @param array the array; it is not copied
+     * @return a slice containing the whole {@code array}
+     */
+    public static ByteSlice wrap(byte[] array) {
+        return new ByteSlice(array, 0, array.length);
+    }
+
+    /**
+     * @param array the array; it is not copied
+     * @param offset the index of the first byte of the slice
+     * @param length the amount of bytes in the slice
+     * @return a slice of the {@code array}
+     * @throws IndexOutOfBoundsException if the slice is not inside the {@code array}
+     */
+    public static ByteSlice wrap(byte[] array, int offset, int length) {
+        checkRange(array.length, offset, length);
+        return new ByteSlice(array, offset, length);
+    }
+
+    /**
+     * @return the amount of bytes in this slice
+     */
+    public int length() {
+        return length;
+    }
+
+    public boolean isEmpty() {
+        return length == 0;
+    }
+
+    /**
+     * @param index an index between 0 and {@link #length()}
+     * @return the byte at that index of this slice
+     * @throws IndexOutOfBoundsException if the index is outside this slice
+     */
+    public byte get(int index) {
+        if (index < 0 || index >= length) {
+            throw new IndexOutOfBoundsException("Index " + index + " is outside a slice of length " + length);
+        }
+        return array[offset + index];
+    }
+
+    /**
+     * @param from the index in this slice of the first byte of the sub-slice
+     * @param to the index in this slice after the last byte of the sub-slice
+     * @return a slice of this slice, without copying
+     * @throws IndexOutOfBoundsException if the range is not inside this slice
+     */
+    public ByteSlice slice(int from, int to) {
+        checkRange(length, from, to - from);
+        if (from == 0 && to == length) {
+            return this;
+        }
+        return new ByteSlice(array, offset + from, to - from);
+    }
+
+    /**
+     * @return a read-only {@link ByteBuffer} of this slice, without copying. Its position is 0 and its limit the
+     * {@link #length()}.
+     */
+    public ByteBuffer asByteBuffer() {
+        return ByteBuffer.wrap(array, offset, length).slice().asReadOnlyBuffer();
+    }
+
+    /**
+     * Writes the bytes of this slice to the {@code out} stream.
+     * @param out the stream; it is not closed
+     * @throws IOException if an I/O exception occurs
+     */
+    public void writeTo(OutputStream out) throws IOException {
+        out.write(array, offset, length);
+    }
+
+    /**
+     * Writes all bytes of this slice to the {@code out} channel.
+     * @param out the channel; it is not closed
+     * @throws IOException if an I/O exception occurs
+     */
+    public void writeTo(WritableByteChannel out) throws IOException {
+        ByteBuffer buffer = ByteBuffer.wrap(array, offset, length);
+        while (buffer.hasRemaining()) {
+            out.write(buffer);
+        }
+    }
+
+    /**
+     * Copies the bytes of this slice into the {@code dst} array.
+     * @param dst the array the bytes are copied to
+     * @param dstOffset the index in {@code dst} of the first byte
+     * @throws IndexOutOfBoundsException if the bytes do not fit in {@code dst}
+     */
+    public void copyTo(byte[] dst, int dstOffset) {
+        System.arraycopy(array, offset, dst, dstOffset, length);
+    }
+
+    /**
+     * @return a new array containing the bytes of this slice. Together with {@link #copyTo(byte[], int)}, this is the only
+     * method that copies the bytes.
+     */
+    public byte[] toByteArray() {
+        return Arrays.copyOfRange(array, offset, offset + length);
+    }
+
+    /**
+     * Two slices are equal if they contain the same bytes, regardless of the arrays they are a view of.
+     */
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (!(o instanceof ByteSlice)) return false;
+        ByteSlice other = (ByteSlice) o;
+        if (length != other.length) return false;
+        for (int i = 0; i < length; i++) {
+            if (array[offset + i] != other.array[other.offset + i]) return false;
+        }
+        return true;
+    }
+
+    /**
+     * @return the same hash code as {@link Arrays#hashCode(byte[])} of the bytes of this slice
+     */
+    @Override
+    public int hashCode() {
+        int result = 1;
+        for (int i = offset; i < offset + length; i++) {
+            result = 31 * result + array[i];
+        }
+        return result;
+    }
+
+    @Override
+    public String toString() {
+        return "ByteSlice[length=" + length + "]";
+    }
+
+    private static void checkRange(int arrayLength, int offset, int length) {
+        if (offset < 0 || length < 0 || offset > arrayLength - length) {
+            throw new IndexOutOfBoundsException("The range [" + offset + ", " + offset + " + " + length + ") is outside an array of length " + arrayLength);
+        }
+    }
+}
@@ -0,0 +1,477 @@
+package be.jonaseveraert.util.arrays;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.Buffer;
+import java.nio.BufferOverflowException;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * <p>Encodes bytes to hexadecimal text and decodes it back.</p>
+ * <p>Every byte is looked up in a table of 256 entries, so encoding takes no shifts, masks or branches per digit.
+ * The text can be written to a {@code String}, a {@code byte[]} or {@code char[]} of the caller, an
+ * {@link Appendable} (e.g. a {@link Writer} or {@link StringBuilder}) or a {@link ByteBuffer}, each in a single pass.
+ * A separator can be put between groups of bytes. From the {@link ArrayUtils#setParallelThreshold(int) parallel
+ * threshold} on, encoding into an array is split over the threads of the common pool.</p>
+ * <p>A {@code HexCodec} is immutable and can be shared between threads.</p>
+ * <p>Code example:</p>
+ * <pre>{@code
+ *     HexCodec.UPPER_CASE.encode(new byte[] {0x01, (byte) 0xAB});                  // "01AB"
+ *     HexCodec.LOWER_CASE.withSeparator(':', 1).encode(digest);                      // "3f:a0:..."
+ *     byte[] bytes = HexCodec.UPPER_CASE.decode("01AB");                           // {0x01, 0xAB}
+ * }</pre>
+ *
+ * @author Jonas Everaert
+ * @author <a href="https://jonaseveraert.be">jonaseveraert.be</a>
+ * @since 1.2
+ */
+public final class HexCodec {
+    // The two upper case digits of byte value v are at index 2v and 2v + 1, the lower case digits 512 further. The
+    // tables are static and final, so the JIT knows their length and can leave out the bounds checks in the loops.
+    // Looking up the digits from a table in a field of the instance was measured to be 2.5 times slower.
+    private static final char[] CHARS = new char[1024];
+    private static final byte[] BYTES = new byte[1024];
+    private static final int LOWER_CASE_BASE = 512;
+    // The value of every ASCII character, or -1 if it is not a hexadecimal digit
+    private static final byte[] DIGITS = new byte[128];
+
+    /**
+     * The amount of bytes that is encoded at once when writing to an {@link Appendable}
+     */
+    private static final int APPENDABLE_CHUNK_SIZE = 1024;
+    /**
+     * The minimum amount of bytes that a task of a parallel encoding encodes
+     */
+    private static final int PARALLEL_MIN_PART = 128 * 1024;
+
+    static {
+        String upper = "0123456789ABCDEF";
+        String lower = "0123456789abcdef";
+        for (int v = 0; v < 256; v++) {
+            CHARS[2 * v] = upper.charAt(v >>> 4);
+            CHARS[2 * v + 1] = upper.charAt(v & 0x0F);
+            CHARS[LOWER_CASE_BASE + 2 * v] = lower.charAt(v >>> 4);
+            CHARS[LOWER_CASE_BASE + 2 * v + 1] = lower.charAt(v & 0x0F);
+        }
+        for (int i = 0; i < CHARS.length; i++) {
+            BYTES[i] = (byte) CHARS[i];
+        }
+        Arrays.fill(DIGITS, (byte) -1);
+        for (int i = 0; i < 16; i++) {
+            DIGITS[upper.charAt(i)] = (byte) i;
+            DIGITS[lower.charAt(i)] = (byte) i;
+        }
+    }
+
+    // Declared after the tables, which they need
+    /**
+     * Encodes with the digits 0-9 and A-F, without separators
+     */
+    public static final HexCodec UPPER_CASE = new HexCodec(true, (char) 0, 0, false);
+    /**
+     * Encodes with the digits 0-9 and a-f, without separators
+     */
+    public static final HexCodec LOWER_CASE = new HexCodec(false, (char) 0, 0, false);
+
+    private final boolean upperCase;
+    private final char separator;
+    /**
+     * The amount of bytes between two separators, 0 when there is no separator
+     */
+    private final int groupSize;
+    private final boolean trailingSeparator;
+
+    private HexCodec(boolean upperCase, char separator, int groupSize, boolean trailingSeparator) {
+        this.upperCase = upperCase;
+        this.separator = separator;
+        this.groupSize = groupSize;
+        this.trailingSeparator = trailingSeparator;
+    }
+
+    /**
+     * @param separator the character that is put between groups of bytes. It has to be an ASCII character, because the
+     *                  text is also written as ASCII bytes, and it cannot be a hexadecimal digit.
+     * @param groupSize the amount of bytes in a group, e.g. 1 to separate every byte
+     * @return a codec that is the same as this one, but puts the {@code separator} after every {@code groupSize} bytes
+     * @throws IllegalArgumentException if the {@code separator} is not ASCII or is a hexadecimal digit, or the
+     * {@code groupSize} is not positive
+     */
+    public HexCodec withSeparator(char separator, int groupSize) {
+        if (separator >= 128) {
+            throw new IllegalArgumentException("The separator has to be an ASCII character.");
+        }
+        if (DIGITS[separator] >= 0) {
+            throw new IllegalArgumentException("The separator cannot be a hexadecimal digit.");
+        }
+        if (groupSize <= 0) {
+            throw new IllegalArgumentException("The group size has to be positive.");
+        }
+        return new HexCodec(upperCase, separator, groupSize, trailingSeparator);
+    }
+
+    /**
+     * @return a codec that is the same as this one, but also puts the separator after the last byte (e.g. "AB CD ").
+     * When decoding, a trailing separator is always accepted.
+     * @throws IllegalStateException if this codec has no separator
+     */
+    public HexCodec withTrailingSeparator() {
+        if (groupSize == 0) {
+            throw new IllegalStateException("A codec without a separator cannot have a trailing separator.");
+        }
+        return new HexCodec(upperCase, separator, groupSize, true);
+    }
+
+    // Encoding //
+    /**
+     * @param byteCount an amount of bytes
+     * @return the amount of characters those bytes are encoded to
+     * @throws IllegalArgumentException if the result would be bigger than {@link Integer#MAX_VALUE}
+     */
+    public int encodedLength(int byteCount) {
+        long length = encodedLength(byteCount, trailingSeparator);
+        if (length > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException(byteCount + " bytes are encoded to more than the maximum array size.");
+        }
+        return (int) length;
+    }
+
+    private long encodedLength(long byteCount, boolean separatorAfterLast) {
+        if (byteCount == 0) return 0;
+        long length = 2 * byteCount;
+        if (groupSize != 0) {
+            length += (byteCount - 1) / groupSize + (separatorAfterLast ? 1 : 0);
+        }
+        return length;
+    }
+
+    /**
+     * @param src the bytes you want to encode
+     * @return a String containing the bytes in hex form
+     */
+    public String encode(byte[] src) {
+        return encode(src, 0, src.length);
+    }
+
+    /**
+     * @param src the array containing the bytes you want to encode
+     * @param offset the index of the first byte
+     * @param length the amount of bytes
+     * @return a String containing the bytes in hex form
+     */
+    public String encode(byte[] src, int offset, int length) {
+        byte[] text = new byte[encodedLength(length)];
+        encode(src, offset, length, text, 0);
+        return new String(text, StandardCharsets.US_ASCII);
+    }
+
+    /**
+     * Encodes the bytes as ASCII characters into the {@code dst} array.
+     * @param src the array containing the bytes you want to encode
+     * @param offset the index of the first byte
+     * @param length the amount of bytes
+     * @param dst the array the characters are written to; it needs room for {@link #encodedLength(int)} bytes
+     * @param dstOffset the index in {@code dst} of the first character
+     * @return the amount of characters written
+     * @throws IndexOutOfBoundsException if the bytes are not inside {@code src} or the characters do not fit in {@code dst}
+     */
+    public int encode(byte[] src, int offset, int length, byte[] dst, int dstOffset) {
+        checkRange(src.length, offset, length);
+        int encodedLength = encodedLength(length);
+        checkRange(dst.length, dstOffset, encodedLength);
+        if (ParallelRanges.isWorthIt((long) encodedLength * Byte.BYTES)) {
+            ParallelRanges.forEach(0, length, partAlignment(), PARALLEL_MIN_PART, (from, to) ->
+                    encodeUnchecked(src, offset + from, to - from, dst, dstOffset + (int) encodedLength(from, true), trailingSeparator || to < length));
+            return encodedLength;
+        }
+        return encodeUnchecked(src, offset, length, dst, dstOffset, trailingSeparator);
+    }
+
+    /**
+     * Encodes the bytes into the {@code dst} array.
+     * @param src the array containing the bytes you want to encode
+     * @param offset the index of the first byte
+     * @param length the amount of bytes
+     * @param dst the array the characters are written to; it needs room for {@link #encodedLength(int)} characters
+     * @param dstOffset the index in {@code dst} of the first character
+     * @return the amount of characters written
+     * @throws IndexOutOfBoundsException if the bytes are not inside {@code src} or the characters do not fit in {@code dst}
+     */
+    public int encode(byte[] src, int offset, int length, char[] dst, int dstOffset) {
+        checkRange(src.length, offset, length);
+        int encodedLength = encodedLength(length);
+        checkRange(dst.length, dstOffset, encodedLength);
+        if (ParallelRanges.isWorthIt((long) encodedLength * Character.BYTES)) {
+            ParallelRanges.forEach(0, length, partAlignment(), PARALLEL_MIN_PART, (from, to) ->
+                    encodeUnchecked(src, offset + from, to - from, dst, dstOffset + (int) encodedLength(from, true), trailingSeparator || to < length));
+            return encodedLength;
+        }
+        return encodeUnchecked(src, offset, length, dst, dstOffset, trailingSeparator);
+    }
+
+    /**
+     * Encodes the bytes and appends the characters to {@code out}, through a small buffer.
+     * @param src the array containing the bytes you want to encode
+     * @param offset the index of the first byte
+     * @param length the amount of bytes
+     * @param out e.g. a {@link Writer} or a {@link StringBuilder}
+     * @throws IOException if {@code out} throws one
+     * @throws IndexOutOfBoundsException if the bytes are not inside {@code src}
+     */
+    public void encode(byte[] src, int offset, int length, Appendable out) throws IOException {
+        checkRange(src.length, offset, length);
+        if (out instanceof StringBuilder) {
+            ((StringBuilder) out).ensureCapacity(((StringBuilder) out).length() + encodedLength(length));
+        }
+        encodePart(src, offset, length, true, out);
+    }
+
+    /**
+     * Encodes one part of an input that is not in one array. Unless it is the last part, the {@code length} has to be a
+     * multiple of {@link #alignedChunkSize(int)}, so that the separators end up in the same places as in one pass.
+     * @param last true for the last part; the other parts are followed by a separator
+     */
+    void encodePart(byte[] src, int offset, int length, boolean last, Appendable out) throws IOException {
+        int chunkSize = alignedChunkSize(APPENDABLE_CHUNK_SIZE);
+        char[] buffer = new char[(int) encodedLength(Math.min(chunkSize, length), true)];
+        int end = offset + length;
+        for (int position = offset; position < end; position += chunkSize) {
+            int chunkLength = Math.min(chunkSize, end - position);
+            boolean lastChunk = last && position + chunkLength == end;
+            int written = encodeUnchecked(src, position, chunkLength, buffer, 0, trailingSeparator || !lastChunk);
+            if (out instanceof Writer) {
+                ((Writer) out).write(buffer, 0, written);
+            } else if (out instanceof StringBuilder) {
+                ((StringBuilder) out).append(buffer, 0, written);
+            } else {
+                out.append(CharBuffer.wrap(buffer, 0, written));
+            }
+        }
+    }
+
+    /**
+     * The parts of a parallel encoding start at whole groups, so that the separators end up in the same places as in
+     * one pass, and span at least a cache line of the output. The output of a part does not start at a cache line,
+     * so two neighbouring parts can write to the same line where they meet.
+     */
+    private int partAlignment() {
+        return groupSize == 0 ? ParallelRanges.CACHE_LINE_SIZE / 2 : ParallelRanges.CACHE_LINE_SIZE / 2 * groupSize;
+    }
+
+    /**
+     * @param size a preferred amount of bytes
+     * @return the biggest whole number of groups that fits in {@code size} bytes, but at least one group
+     */
+    int alignedChunkSize(int size) {
+        return groupSize == 0 ? size : Math.max(1, size / groupSize) * groupSize;
+    }
+
+    /**
+     * Encodes the remaining bytes of {@code src} as ASCII characters into {@code dst}. Both positions are advanced.
+     * @param src the bytes you want to encode
+     * @param dst the buffer the characters are written to
+     * @return the amount of characters written
+     * @throws BufferOverflowException if {@code dst} does not have room for all characters; nothing is written then
+     */
+    public int encode(ByteBuffer src, ByteBuffer dst) {
+        int length = src.remaining();
+        int encodedLength = encodedLength(length);
+        if (dst.remaining() < encodedLength) {
+            throw new BufferOverflowException();
+        }
+        if (src.hasArray() && dst.hasArray() && !dst.isReadOnly()) {
+            encodeUnchecked(src.array(), src.arrayOffset() + src.position(), length, dst.array(), dst.arrayOffset() + dst.position(), trailingSeparator);
+            ((Buffer) src).position(src.limit());
+            ((Buffer) dst).position(dst.position() + encodedLength);
+            return encodedLength;
+        }
+        int base = upperCase ? 0 : LOWER_CASE_BASE;
+        for (int i = 0; i < length; i++) {
+            int v = base + ((src.get() & 0xFF) << 1);
+            dst.put(BYTES[v]).put(BYTES[v + 1]);
+            if (groupSize != 0 && (i + 1) % groupSize == 0 && i + 1 < length) {
+                dst.put((byte) separator);
+            }
+        }
+        if (length > 0 && trailingSeparator) {
+            dst.put((byte) separator);
+        }
+        return encodedLength;
+    }
+
+    private int encodeUnchecked(byte[] src, int offset, int length, byte[] dst, int dstOffset, boolean separatorAfterLast) {
+        byte[] table = BYTES;
+        // Derived from the boolean, so the JIT knows it is 0 or 512 and that every index is inside the table
+        int base = upperCase ? 0 : LOWER_CASE_BASE;
+        int end = offset + length;
+        int p = dstOffset;
+        if (groupSize == 0) {
+            for (int i = offset; i < end; i++) {
+                int v = base + ((src[i] & 0xFF) << 1);
+                dst[p++] = table[v];
+                dst[p++] = table[v + 1];
+            }
+            return p - dstOffset;
+        }
+        byte separator = (byte) this.separator;
+        if (groupSize == 1 && length > 0) {
+            // The most common case, e.g. "AB CD EF", without the bookkeeping of groups
+            for (int i = offset; i < end - 1; i++) {
+                int v = base + ((src[i] & 0xFF) << 1);
+                dst[p++] = table[v];
+                dst[p++] = table[v + 1];
+                dst[p++] = separator;
+            }
+            int v = base + ((src[end - 1] & 0xFF) << 1);
+            dst[p++] = table[v];
+            dst[p++] = table[v + 1];
+        }
+        for (int groupStart = groupSize == 1 ? end : offset; groupStart < end; ) {
+            int groupEnd = end - groupStart > groupSize ? groupStart + groupSize : end;
+            for (int i = groupStart; i < groupEnd; i++) {
+                int v = base + ((src[i] & 0xFF) << 1);
+                dst[p++] = table[v];
+                dst[p++] = table[v + 1];
+            }
+            if (groupEnd < end) dst[p++] = separator;
+            groupStart = groupEnd;
+        }
+        if (length > 0 && separatorAfterLast) dst[p++] = separator;
+        return p - dstOffset;
+    }
+
+    private int encodeUnchecked(byte[] src, int offset, int length, char[] dst, int dstOffset, boolean separatorAfterLast) {
+        char[] table = CHARS;
+        // Derived from the boolean, so the JIT knows it is 0 or 512 and that every index is inside the table
+        int base = upperCase ? 0 : LOWER_CASE_BASE;
+        int end = offset + length;
+        int p = dstOffset;
+        if (groupSize == 0) {
+            for (int i = offset; i < end; i++) {
+                int v = base + ((src[i] & 0xFF) << 1);
+                dst[p++] = table[v];
+                dst[p++] = table[v + 1];
+            }
+            return p - dstOffset;
+        }
+        if (groupSize == 1 && length > 0) {
+            for (int i = offset; i < end - 1; i++) {
+                int v = base + ((src[i] & 0xFF) << 1);
+                dst[p++] = table[v];
+                dst[p++] = table[v + 1];
+                dst[p++] = separator;
+            }
+            int v = base + ((src[end - 1] & 0xFF) << 1);
+            dst[p++] = table[v];
+            dst[p++] = table[v + 1];
+        }
+        for (int groupStart = groupSize == 1 ? end : offset; groupStart < end; ) {
+            int groupEnd = end - groupStart > groupSize ? groupStart + groupSize : end;
+            for (int i = groupStart; i < groupEnd; i++) {
+                int v = base + ((src[i] & 0xFF) << 1);
+                dst[p++] = table[v];
+                dst[p++] = table[v + 1];
+            }
+            if (groupEnd < end) dst[p++] = separator;
+            groupStart = groupEnd;
+        }
+        if (length > 0 && separatorAfterLast) dst[p++] = separator;
+        return p - dstOffset;
+    }
+
+    // Decoding //
+    /**
+     * Decodes hexadecimal text, which may use upper and lower case digits. If this codec has a separator, the text
+     * has to contain it after every group of bytes, exactly where {@link #encode(byte[])} puts it; a separator after
+     * the last byte is optional.
+     * @param hex the hexadecimal text
+     * @return the decoded bytes
+     * @throws IllegalArgumentException if the text contains a character that is not a hexadecimal digit or a
+     * separator in the right place, or if its length does not match a whole number of bytes
+     */
+    public byte[] decode(CharSequence hex) {
+        byte[] dst = new byte[decodedLength(hex)];
+        decode(hex, dst, 0);
+        return dst;
+    }
+
+    /**
+     * Decodes hexadecimal text into the {@code dst} array. See {@link #decode(CharSequence)}.
+     * @param hex the hexadecimal text
+     * @param dst the array the bytes are written to
+     * @param dstOffset the index in {@code dst} of the first byte
+     * @return the amount of bytes written
+     * @throws IllegalArgumentException if the text is not valid
+     * @throws IndexOutOfBoundsException if the bytes do not fit in {@code dst}
+     */
+    public int decode(CharSequence hex, byte[] dst, int dstOffset) {
+        int byteCount = decodedLength(hex);
+        checkRange(dst.length, dstOffset, byteCount);
+        int index = 0;
+        int inGroup = 0;
+        for (int i = 0; i < byteCount; i++) {
+            int high = digit(hex, index);
+            int low = digit(hex, index + 1);
+            dst[dstOffset + i] = (byte) ((high << 4) | low);
+            index += 2;
+            if (groupSize != 0 && ++inGroup == groupSize) {
+                inGroup = 0;
+                if (index < hex.length()) {
+                    if (hex.charAt(index) != separator) {
+                        throw new IllegalArgumentException("Expected the separator '" + separator + "' at index " + index + ", but found '" + hex.charAt(index) + "'.");
+                    }
+                    index++;
+                }
+            }
+        }
+        if (index < hex.length()) {
+            // Only a trailing separator can be left
+            if (hex.charAt(index) != separator) {
+                throw new IllegalArgumentException("Expected the separator '" + separator + "' at index " + index + ", but found '" + hex.charAt(index) + "'.");
+            }
+        }
+        return byteCount;
+    }
+
+    /**
+     * @return the amount of bytes the text decodes to
+     * @throws IllegalArgumentException if the length does not match a whole number of bytes
+     */
+    private int decodedLength(CharSequence hex) {
+        int length = hex.length();
+        if (groupSize == 0) {
+            if (length % 2 != 0) {
+                throw new IllegalArgumentException("The hexadecimal text has an odd length.");
+            }
+            return length / 2;
+        }
+        if (length > 0 && hex.charAt(length - 1) == separator) {
+            length--;
+        }
+        if (length == 0) return 0;
+        // Every full group takes 2 * groupSize digits and a separator; the last group has no separator after it
+        int groupLength = 2 * groupSize + 1;
+        int rest = length % groupLength;
+        if (rest == 0 || rest % 2 != 0) {
+            throw new IllegalArgumentException("The length of the hexadecimal text does not match a whole number of bytes.");
+        }
+        return length / groupLength * groupSize + rest / 2;
+    }
+
+    private static int digit(CharSequence hex, int index) {
+        char c = hex.charAt(index);
+        int value = c < 128 ? DIGITS[c] : -1;
+        if (value < 0) {
+            throw new IllegalArgumentException("The character '" + c + "' at index " + index + " is not a hexadecimal digit.");
+        }
+        return value;
+    }
+
+    private static void checkRange(int arrayLength, int offset, int length) {
+        if (offset < 0 || length < 0 || offset > arrayLength - length) {
+            throw new IndexOutOfBoundsException("The range [" + offset + ", " + offset + " + " + length + ") is outside an array of length " + arrayLength);
+        }
+    }
+}
@@ -0,0 +1,255 @@
+package be.jonaseveraert.util.arrays;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.StringWriter;
+import java.io.Writer;
+import java.nio.Buffer;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+
+/**
+ * <p>Writes a hex dump in the style of {@code xxd}: an offset column, the bytes in hex in groups, and the bytes as
+ * ASCII characters in a gutter on the right.</p>
+ * <pre>
+ *     00000000: 5249 4646 2400 0000 5741 5645 666d 7420  RIFF$...WAVEfmt
+ *     00000010: 1000 0000 0100 0200 44ac 0000 10b1 0200  ........D.......
+ * </pre>
+ * <p>The input is read in chunks of a fixed size and every chunk is written to the {@link Writer} at once, so files of
+ * any size can be dumped without loading them into memory.</p>
+ * <p>Code example:</p>
+ * <pre>{@code
+ *     try (FileChannel channel = FileChannel.open(path);
+ *          Writer out = Files.newBufferedWriter(dumpPath)) {
+ *         new HexDump().dump(channel, 0, channel.size(), out);
+ *     }
+ * }</pre>
+ *
+ * @author Jonas Everaert
+ * @author <a href="https://jonaseveraert.be">jonaseveraert.be</a>
+ * @since 1.2
+ */
+public class HexDump {
+    private static final char[] LOWER_CASE_DIGITS = "0123456789abcdef".toCharArray();
+    private static final char[] UPPER_CASE_DIGITS = "0123456789ABCDEF".toCharArray();
+    /**
+     * The minimum amount of hexadecimal digits in the offset column
+     */
+    private static final int OFFSET_DIGITS = 8;
+    /**
+     * The amount of lines that is read and written at once
+     */
+    private static final int LINES_PER_CHUNK = 4096;
+
+    private int bytesPerLine = 16;
+    private int groupSize = 2;
+    private boolean upperCase = false;
+    private long startOffset = 0;
+
+    /**
+     * @param bytesPerLine the amount of bytes on every line, 16 by default
+     * @throws IllegalArgumentException if {@code bytesPerLine} is not positive
+     */
+    public void setBytesPerLine(int bytesPerLine) {
+        if (bytesPerLine <= 0) {
+            throw new IllegalArgumentException("The amount of bytes per line has to be positive.");
+        }
+        this.bytesPerLine = bytesPerLine;
+    }
+
+    /**
+     * @param groupSize the amount of bytes between two spaces in the hex column, 2 by default
+     * @throws IllegalArgumentException if {@code groupSize} is not positive
+     */
+    public void setGroupSize(int groupSize) {
+        if (groupSize <= 0) {
+            throw new IllegalArgumentException("The group size has to be positive.");
+        }
+        this.groupSize = groupSize;
+    }
+
+    /**
+     * @param upperCase true to write the hex digits A-F in upper case; lower case (like {@code xxd}) by default
+     */
+    public void setUpperCase(boolean upperCase) {
+        this.upperCase = upperCase;
+    }
+
+    /**
+     * @param startOffset the offset that is shown for the first byte of a stream, 0 by default. Not used when dumping
+     *                    a region of a {@link FileChannel}, where the offset in the file is shown.
+     */
+    public void setStartOffset(long startOffset) {
+        this.startOffset = startOffset;
+    }
+
+    /**
+     * Dumps everything that can be read from {@code in}. Neither of the streams is closed.
+     * @param in the stream that will be read until its end
+     * @param out the writer the dump is written to
+     * @return the amount of bytes that were dumped
+     * @throws IOException if an I/O exception occurs
+     */
+    public long dump(InputStream in, Writer out) throws IOException {
+        Dumper dumper = new Dumper(out, startOffset);
+        byte[] chunk = dumper.chunk;
+        while (true) {
+            // Fill the whole chunk, so that only the last line can be shorter than bytesPerLine
+            int filled = 0;
+            int read = 0;
+            while (filled < chunk.length && (read = in.read(chunk, filled, chunk.length - filled)) != -1) {
+                filled += read;
+            }
+            dumper.write(filled);
+            if (read == -1) {
+                break;
+            }
+        }
+        out.flush();
+        return dumper.offset - startOffset;
+    }
+
+    /**
+     * Dumps everything that can be read from the {@code in} channel. Neither the channel nor the writer is closed.
+     * @param in the channel that will be read until its end
+     * @param out the writer the dump is written to
+     * @return the amount of bytes that were dumped
+     * @throws IOException if an I/O exception occurs
+     */
+    public long dump(ReadableByteChannel in, Writer out) throws IOException {
+        Dumper dumper = new Dumper(out, startOffset);
+        ByteBuffer buffer = ByteBuffer.wrap(dumper.chunk);
+        while (true) {
+            ((Buffer) buffer).clear();
+            int read = 0;
+            while (buffer.hasRemaining() && (read = in.read(buffer)) != -1) {
+                // Keep reading until the chunk is full
+            }
+            dumper.write(buffer.position());
+            if (read == -1) {
+                break;
+            }
+        }
+        out.flush();
+        return dumper.offset - startOffset;
+    }
+
+    /**
+     * Dumps a region of a file. The position of the channel is not changed, so the same channel can be used by
+     * several threads. The offsets in the dump are the offsets in the file.
+     * @param channel the file
+     * @param position the offset in the file of the first byte that will be dumped
+     * @param length the maximum amount of bytes that will be dumped; less if the file ends before
+     * @param out the writer the dump is written to; it is not closed
+     * @return the amount of bytes that were dumped
+     * @throws IOException if an I/O exception occurs
+     */
+    public long dump(FileChannel channel, long position, long length, Writer out) throws IOException {
+        if (position < 0 || length < 0) {
+            throw new IllegalArgumentException("The position and length cannot be negative.");
+        }
+        Dumper dumper = new Dumper(out, position);
+        ByteBuffer buffer = ByteBuffer.wrap(dumper.chunk);
+        long end = position + length;
+        long filePosition = position;
+        boolean endOfFile = false;
+        while (filePosition < end && !endOfFile) {
+            ((Buffer) buffer).clear();
+            ((Buffer) buffer).limit((int) Math.min(buffer.capacity(), end - filePosition));
+            while (buffer.hasRemaining()) {
+                int read = channel.read(buffer, filePosition + buffer.position());
+                if (read == -1) {
+                    endOfFile = true;
+                    break;
+                }
+            }
+            dumper.write(buffer.position());
+            filePosition += buffer.position();
+        }
+        out.flush();
+        return filePosition - position;
+    }
+
+    /**
+     * @param bytes the bytes that will be dumped
+     * @return the dump as a String
+     */
+    public String dump(byte[] bytes) {
+        StringWriter out = new StringWriter();
+        Dumper dumper = new Dumper(out, startOffset);
+        try {
+            for (int position = 0; position < bytes.length; position += dumper.chunk.length) {
+                int length = Math.min(dumper.chunk.length, bytes.length - position);
+                System.arraycopy(bytes, position, dumper.chunk, 0, length);
+                dumper.write(length);
+            }
+        } catch (IOException e) {
+            // A StringWriter does not throw
+            throw new IllegalStateException(e);
+        }
+        return out.toString();
+    }
+
+    /**
+     * Formats the lines of one dump. The settings are copied when it is created.
+     */
+    private final class Dumper {
+        private final Writer out;
+        private final HexCodec codec;
+        private final char[] digits;
+        private final int bytesPerLine;
+        private final int hexWidth;
+        final byte[] chunk;
+        private final char[] text;
+        long offset;
+
+        Dumper(Writer out, long offset) {
+            this.out = out;
+            this.offset = offset;
+            this.bytesPerLine = HexDump.this.bytesPerLine;
+            this.codec = (upperCase ? HexCodec.UPPER_CASE : HexCodec.LOWER_CASE).withSeparator(' ', groupSize);
+            this.digits = upperCase ? UPPER_CASE_DIGITS : LOWER_CASE_DIGITS;
+            this.hexWidth = codec.encodedLength(bytesPerLine);
+            int lines = Math.max(1, LINES_PER_CHUNK * 16 / bytesPerLine);
+            this.chunk = new byte[lines * bytesPerLine];
+            // Offset with up to 16 digits, ": ", hex, two spaces, gutter and a newline
+            this.text = new char[lines * (16 + 2 + hexWidth + 2 + bytesPerLine + 1)];
+        }
+
+        /**
+         * Writes the lines for the first {@code length} bytes of the chunk.
+         */
+        void write(int length) throws IOException {
+            int p = 0;
+            for (int lineStart = 0; lineStart < length; lineStart += bytesPerLine) {
+                int lineLength = Math.min(bytesPerLine, length - lineStart);
+                p = writeOffset(offset + lineStart, p);
+                text[p++] = ':';
+                text[p++] = ' ';
+                int hexEnd = p + hexWidth;
+                p += codec.encode(chunk, lineStart, lineLength, text, p);
+                while (p < hexEnd) {
+                    text[p++] = ' ';
+                }
+                text[p++] = ' ';
+                text[p++] = ' ';
+                for (int i = lineStart; i < lineStart + lineLength; i++) {
+                    int b = chunk[i] & 0xFF;
+                    text[p++] = b >= 0x20 && b < 0x7F ? (char) b : '.';
+                }
+                text[p++] = '\n';
+            }
+            out.write(text, 0, p);
+            offset += length;
+        }
+
+        private int writeOffset(long value, int p) {
+            int width = Math.max(OFFSET_DIGITS, (64 - Long.numberOfLeadingZeros(value) + 3) / 4);
+            for (int shift = (width - 1) * 4; shift >= 0; shift -= 4) {
+                text[p++] = digits[(int) (value >>> shift) & 0x0F];
+            }
+            return p;
+        }
+    }
+}
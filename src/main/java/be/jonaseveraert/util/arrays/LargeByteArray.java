@@ -0,0 +1,608 @@
+package be.jonaseveraert.util.arrays;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.Buffer;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * <p>A byte array that is addressed by a {@code long}, so it can be bigger than 2 GB, and whose bytes are not on the
+ * Java heap. It is backed by direct {@link ByteBuffer}s ({@link #allocate(long)}) or by a memory-mapped file
+ * ({@link #map(Path, long)}), split into segments of 1 GiB.</p>
+ * <p>It supports the operations of {@link ArrayUtils} for byte arrays: {@link #part(long, long)} and
+ * {@link #slice(long, long)}, {@link #invert()}, {@link #repeat(long)}, {@link #encodeHex(HexCodec, Appendable)} and
+ * {@link #indexOf(byte[])}.</p>
+ * <p>The memory is freed when the array and all its slices are not reachable anymore. Direct memory is limited by the
+ * {@code -XX:MaxDirectMemorySize} option of the JVM; a mapped file is only limited by the disk.</p>
+ * <p>Reading and writing different bytes from several threads is safe; none of the methods change state other than the
+ * bytes themselves.</p>
+ * <p>Code example:</p>
+ * <pre>{@code
+ *     LargeByteArray audio = LargeByteArray.mapReadOnly(Paths.get("recording.wav"));
+ *     long data = audio.indexOf("data".getBytes(StandardCharsets.US_ASCII));
+ *     LargeByteArray samples = audio.slice(data + 8, audio.length()); // No copy
+ * }</pre>
+ *
+ * @author Jonas Everaert
+ * @author <a href="https://jonaseveraert.be">jonaseveraert.be</a>
+ * @since 1.2
+ */
+public final class LargeByteArray {
+    /**
+     * The size of a segment is {@code 1 << SEGMENT_SHIFT} bytes
+     */
+    static final int SEGMENT_SHIFT = 30;
+    /**
+     * The amount of bytes that is copied to the heap at once when encoding to hex
+     */
+    private static final int HEX_CHUNK_SIZE = 64 * 1024;
+
+    /**
+     * All segments have {@code 1 << segmentShift} bytes, except the last one. They are in little endian order, which
+     * {@link #indexOf(ByteBuffer, int, int, byte)} needs.
+     */
+    private final ByteBuffer[] segments;
+    private final int segmentShift;
+    private final long segmentMask;
+    /**
+     * The index in the segments of the first byte of this array, which is not 0 for a slice
+     */
+    private final long offset;
+    private final long length;
+
+    private LargeByteArray(ByteBuffer[] segments, int segmentShift, long offset, long length) {
+        this.segments = segments;
+        this.segmentShift = segmentShift;
+        this.segmentMask = (1L << segmentShift) - 1;
+        this.offset = offset;
+        this.length = length;
+    }
+
+    // Creating //
+    /**
+     * @param length the amount of bytes
+     * @return a new array of {@code length} bytes in direct memory, all set to 0
+     * @throws IllegalArgumentException if the {@code length} is negative
+     * @throws OutOfMemoryError if there is not enough direct memory
+     */
+    public static LargeByteArray allocate(long length) {
+        return allocate(length, SEGMENT_SHIFT);
+    }
+
+    static LargeByteArray allocate(long length, int segmentShift) {
+        ByteBuffer[] segments = new ByteBuffer[segmentCount(length, segmentShift)];
+        for (int i = 0; i < segments.length; i++) {
+            int size = (int) Math.min(1L << segmentShift, length - ((long) i << segmentShift));
+            segments[i] = ByteBuffer.allocateDirect(size).order(ByteOrder.LITTLE_ENDIAN);
+        }
+        return new LargeByteArray(segments, segmentShift, 0, length);
+    }
+
+    /**
+     * @param bytes the bytes that will be copied
+     * @return a new array in direct memory containing a copy of the {@code bytes}
+     */
+    public static LargeByteArray copyOf(byte[] bytes) {
+        LargeByteArray array = allocate(bytes.length);
+        array.set(0, bytes, 0, bytes.length);
+        return array;
+    }
+
+    /**
+     * Maps a region of a file into memory. The mapping stays valid after the channel is closed.
+     * @param channel the file
+     * @param mode {@link FileChannel.MapMode#READ_ONLY}, {@link FileChannel.MapMode#READ_WRITE} or
+     *             {@link FileChannel.MapMode#PRIVATE}. When writing, the file grows if it is smaller than the region.
+     * @param position the offset in the file of the first byte of the array
+     * @param length the amount of bytes
+     * @return an array whose bytes are the bytes of the file
+     * @throws IOException if an I/O exception occurs
+     * @throws IllegalArgumentException if the {@code position} or {@code length} is negative
+     */
+    public static LargeByteArray map(FileChannel channel, FileChannel.MapMode mode, long position, long length) throws IOException {
+        return map(channel, mode, position, length, SEGMENT_SHIFT);
+    }
+
+    static LargeByteArray map(FileChannel channel, FileChannel.MapMode mode, long position, long length, int segmentShift) throws IOException {
+        if (position < 0) {
+            throw new IllegalArgumentException("The position cannot be negative.");
+        }
+        ByteBuffer[] segments = new ByteBuffer[segmentCount(length, segmentShift)];
+        for (int i = 0; i < segments.length; i++) {
+            long segmentStart = (long) i << segmentShift;
+            long size = Math.min(1L << segmentShift, length - segmentStart);
+            segments[i] = channel.map(mode, position + segmentStart, size).order(ByteOrder.LITTLE_ENDIAN);
+        }
+        return new LargeByteArray(segments, segmentShift, 0, length);
+    }
+
+    /**
+     * Maps a file into memory to read and write it. The file is created if it does not exist and grows if it is smaller
+     * than {@code length}. Changes are written to the file by the operating system, or at once by {@link #force()}.
+     * @param path the file
+     * @param length the amount of bytes
+     * @return an array whose bytes are the first {@code length} bytes of the file
+     * @throws IOException if an I/O exception occurs
+     */
+    public static LargeByteArray map(Path path, long length) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            return map(channel, FileChannel.MapMode.READ_WRITE, 0, length);
+        }
+    }
+
+    /**
+     * Maps a whole file into memory to read it. Writing to the array throws a {@link java.nio.ReadOnlyBufferException}.
+     * @param path the file
+     * @return an array whose bytes are the bytes of the file
+     * @throws IOException if an I/O exception occurs
+     */
+    public static LargeByteArray mapReadOnly(Path path) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            return map(channel, FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        }
+    }
+
+    private static int segmentCount(long length, int segmentShift) {
+        if (length < 0) {
+            throw new IllegalArgumentException("The length cannot be negative.");
+        }
+        long count = (length >>> segmentShift) + ((length & ((1L << segmentShift) - 1)) == 0 ? 0 : 1);
+        if (count > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("An array of " + length + " bytes is too large.");
+        }
+        return (int) count;
+    }
+
+    // Accessing //
+    /**
+     * @return the amount of bytes in this array
+     */
+    public long length() {
+        return length;
+    }
+
+    /**
+     * @param index an index between 0 and {@link #length()}
+     * @return the byte at that index
+     * @throws IndexOutOfBoundsException if the index is outside this array
+     */
+    public byte get(long index) {
+        checkIndex(index);
+        long position = offset + index;
+        return segments[(int) (position >>> segmentShift)].get((int) (position & segmentMask));
+    }
+
+    /**
+     * @param index an index between 0 and {@link #length()}
+     * @param value the new value of the byte at that index
+     * @throws IndexOutOfBoundsException if the index is outside this array
+     */
+    public void set(long index, byte value) {
+        checkIndex(index);
+        long position = offset + index;
+        segments[(int) (position >>> segmentShift)].put((int) (position & segmentMask), value);
+    }
+
+    /**
+     * Copies {@code length} bytes from this array, starting at {@code index}, into the {@code dst} array.
+     * @throws IndexOutOfBoundsException if the range is not inside this array or the {@code dst} array
+     */
+    public void get(long index, byte[] dst, int dstOffset, int length) {
+        checkRange(index, length);
+        checkArrayRange(dst.length, dstOffset, length);
+        while (length > 0) {
+            long position = offset + index;
+            ByteBuffer segment = segments[(int) (position >>> segmentShift)];
+            int start = (int) (position & segmentMask);
+            int count = Math.min(length, segment.capacity() - start);
+            range(segment, start, count).get(dst, dstOffset, count);
+            index += count;
+            dstOffset += count;
+            length -= count;
+        }
+    }
+
+    /**
+     * Copies {@code length} bytes of the {@code src} array into this array, starting at {@code index}.
+     * @throws IndexOutOfBoundsException if the range is not inside this array or the {@code src} array
+     */
+    public void set(long index, byte[] src, int srcOffset, int length) {
+        checkRange(index, length);
+        checkArrayRange(src.length, srcOffset, length);
+        while (length > 0) {
+            long position = offset + index;
+            ByteBuffer segment = segments[(int) (position >>> segmentShift)];
+            int start = (int) (position & segmentMask);
+            int count = Math.min(length, segment.capacity() - start);
+            range(segment, start, count).put(src, srcOffset, count);
+            index += count;
+            srcOffset += count;
+            length -= count;
+        }
+    }
+
+    /**
+     * Copies {@code length} bytes of this array into the {@code dst} array. The two ranges cannot overlap.
+     * @param index the index in this array of the first byte
+     * @param dst the array the bytes are copied to
+     * @param dstIndex the index in {@code dst} of the first byte
+     * @param length the amount of bytes
+     * @throws IndexOutOfBoundsException if a range is not inside its array
+     * @throws IllegalArgumentException if the ranges overlap
+     */
+    public void copyTo(long index, LargeByteArray dst, long dstIndex, long length) {
+        checkRange(index, length);
+        dst.checkRange(dstIndex, length);
+        if (segments == dst.segments) {
+            long from = offset + index;
+            long to = dst.offset + dstIndex;
+            if (from < to + length && to < from + length && length > 0) {
+                throw new IllegalArgumentException("The ranges cannot overlap.");
+            }
+        }
+        forEachRange(this, index, dst, dstIndex, length, COPY);
+    }
+
+    /**
+     * @param from the index of the first byte of the slice
+     * @param to the index after the last byte of the slice
+     * @return an array that is a view of a part of this array, without copying. Changes to one are visible in the other.
+     * @throws IndexOutOfBoundsException if the range is not inside this array
+     */
+    public LargeByteArray slice(long from, long to) {
+        checkRange(from, to - from);
+        if (from == 0 && to == length) {
+            return this;
+        }
+        return new LargeByteArray(segments, segmentShift, offset + from, to - from);
+    }
+
+    /**
+     * The same as {@link ArrayUtils#partArray(byte[], int, int)}: copies a part of this array.
+     * @param from the index of the first byte that is copied
+     * @param length the amount of bytes that is copied
+     * @return a new array in direct memory containing the copied bytes
+     * @throws OutputArraySizeTooLargeException if the part is not inside this array
+     * @see #slice(long, long) for a part without copying
+     */
+    public LargeByteArray part(long from, long length) throws OutputArraySizeTooLargeException {
+        if (from < 0 || length < 0 || from > this.length - length) {
+            throw new OutputArraySizeTooLargeException("The part [" + from + ", " + from + " + " + length + ") is outside an array of length " + this.length);
+        }
+        LargeByteArray part = allocate(length, segmentShift);
+        copyTo(from, part, 0, length);
+        return part;
+    }
+
+    /**
+     * @return a new heap array containing the bytes of this array
+     * @throws OutputArraySizeTooLargeException if this array is too large for a Java array
+     */
+    public byte[] toByteArray() throws OutputArraySizeTooLargeException {
+        if (length > Integer.MAX_VALUE - 8) {
+            throw new OutputArraySizeTooLargeException("An array of " + length + " bytes does not fit in a byte[].");
+        }
+        byte[] bytes = new byte[(int) length];
+        get(0, bytes, 0, bytes.length);
+        return bytes;
+    }
+
+    /**
+     * Writes the changes to this array to the file, if it is a mapped file. Does nothing otherwise.
+     */
+    public void force() {
+        for (ByteBuffer segment : segments) {
+            if (segment instanceof MappedByteBuffer && !segment.isReadOnly()) {
+                ((MappedByteBuffer) segment).force();
+            }
+        }
+    }
+
+    // Operations //
+    /**
+     * The same as {@link ArrayUtils#invertByteArray(byte[])}: inverts all bytes (e.g. 000101 becomes 111010).
+     * @return a new array in direct memory containing the inverted bytes
+     */
+    public LargeByteArray invert() {
+        LargeByteArray inverted = allocate(length, segmentShift);
+        forEachRange(this, 0, inverted, 0, length, INVERT);
+        return inverted;
+    }
+
+    /**
+     * The same as {@link ArrayUtils#invertByteArrayInPlace(byte[])}: inverts all bytes, overwriting this array.
+     */
+    public void invertInPlace() {
+        forEachRange(this, 0, this, 0, length, INVERT);
+    }
+
+    /**
+     * The same as {@link ArrayUtils#repeatArray(byte[], int)}.
+     * @param repeat the amount of times this array is copied into the new array
+     * @return a new array in direct memory containing this array {@code repeat} times
+     * @throws IllegalArgumentException when {@code repeat} is negative, or the result would have more than
+     * {@link Long#MAX_VALUE} bytes
+     */
+    public LargeByteArray repeat(long repeat) {
+        if (repeat < 0) {
+            throw new IllegalArgumentException("Cannot repeat an array a negative amount of times.");
+        }
+        long total;
+        try {
+            total = Math.multiplyExact(length, repeat);
+        } catch (ArithmeticException e) {
+            throw new IllegalArgumentException("Repeating " + length + " bytes " + repeat + " times is too large.", e);
+        }
+        LargeByteArray result = allocate(total, segmentShift);
+        repeatInto(result);
+        return result;
+    }
+
+    /**
+     * The same as {@link ArrayUtils#repeatInto(byte[], byte[])}: fills the whole {@code dst} array with copies of this
+     * array. The last copy is cut off if the length of {@code dst} is not a multiple of the length of this array.
+     * @param dst the array that will be filled; it cannot overlap with this array
+     * @throws IllegalArgumentException when this array is empty and the {@code dst} array is not
+     */
+    public void repeatInto(LargeByteArray dst) {
+        if (dst.length == 0) return;
+        if (length == 0) {
+            throw new IllegalArgumentException("The dst array cannot be filled with an empty array.");
+        }
+        long filled = Math.min(length, dst.length);
+        copyTo(0, dst, 0, filled);
+        // Double the filled part every time, like ArrayUtils#repeatArray
+        while (filled < dst.length) {
+            long count = Math.min(filled, dst.length - filled);
+            dst.copyTo(0, dst, filled, count);
+            filled += count;
+        }
+    }
+
+    /**
+     * Writes all bytes of this array in hexadecimal to {@code out}, in chunks, so that the hex of an array bigger
+     * than a String can be written to a file.
+     * @param codec the codec that decides on the case and the separators
+     * @param out where the hex is written to, e.g. a {@link java.io.Writer}
+     * @throws IOException if {@code out} throws it
+     */
+    public void encodeHex(HexCodec codec, Appendable out) throws IOException {
+        int chunkSize = codec.alignedChunkSize(HEX_CHUNK_SIZE);
+        byte[] chunk = new byte[(int) Math.min(chunkSize, length)];
+        for (long index = 0; index < length; index += chunkSize) {
+            int count = (int) Math.min(chunkSize, length - index);
+            get(index, chunk, 0, count);
+            codec.encodePart(chunk, 0, count, index + count == length, out);
+        }
+    }
+
+    /**
+     * @param value the byte to search for
+     * @return the index of the first occurrence of {@code value}, or -1 if it does not occur
+     */
+    public long indexOf(byte value) {
+        return indexOf(value, 0);
+    }
+
+    /**
+     * @param value the byte to search for
+     * @param fromIndex the index to start searching from
+     * @return the index of the first occurrence of {@code value} from {@code fromIndex} on, or -1 if it does not occur
+     */
+    public long indexOf(byte value, long fromIndex) {
+        long index = Math.max(fromIndex, 0);
+        while (index < length) {
+            long position = offset + index;
+            ByteBuffer segment = segments[(int) (position >>> segmentShift)];
+            int start = (int) (position & segmentMask);
+            int end = (int) Math.min(segment.capacity(), start + (length - index));
+            int found = indexOf(segment, start, end, value);
+            if (found >= 0) {
+                return index + (found - start);
+            }
+            index += end - start;
+        }
+        return -1;
+    }
+
+    /**
+     * @param pattern the bytes to search for
+     * @return the index of the first occurrence of the {@code pattern}, or -1 if it does not occur
+     */
+    public long indexOf(byte[] pattern) {
+        return indexOf(pattern, 0);
+    }
+
+    /**
+     * @param pattern the bytes to search for; an empty pattern is found at {@code fromIndex}
+     * @param fromIndex the index to start searching from
+     * @return the index of the first occurrence of the {@code pattern} from {@code fromIndex} on, or -1 if it does not
+     * occur
+     */
+    public long indexOf(byte[] pattern, long fromIndex) {
+        fromIndex = Math.max(fromIndex, 0);
+        if (pattern.length == 0) {
+            return fromIndex <= length ? fromIndex : -1;
+        }
+        long last = length - pattern.length;
+        for (long index = indexOf(pattern[0], fromIndex); index >= 0 && index <= last; index = indexOf(pattern[0], index + 1)) {
+            if (matches(index, pattern)) {
+                return index;
+            }
+        }
+        return -1;
+    }
+
+    private boolean matches(long index, byte[] pattern) {
+        for (int i = 1; i < pattern.length; i++) {
+            if (get(index + i) != pattern[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Searches 8 bytes at a time: a byte of {@code x} is 0 where the segment contains {@code value}, and
+     * {@code (x - 0x01..01) & ~x & 0x80..80} has the high bit set in the lowest such byte.
+     */
+    private static int indexOf(ByteBuffer segment, int start, int end, byte value) {
+        long pattern = (value & 0xFFL) * 0x0101010101010101L;
+        int position = start;
+        for (; position <= end - 8; position += 8) {
+            long x = segment.getLong(position) ^ pattern;
+            long found = (x - 0x0101010101010101L) & ~x & 0x8080808080808080L;
+            if (found != 0) {
+                // Little endian, so the lowest byte is the first one
+                return position + (Long.numberOfTrailingZeros(found) >>> 3);
+            }
+        }
+        for (; position < end; position++) {
+            if (segment.get(position) == value) {
+                return position;
+            }
+        }
+        return -1;
+    }
+
+    // Streams //
+    /**
+     * Writes all bytes of this array to the {@code out} channel, without copying them to the heap.
+     * @param out the channel; it is not closed
+     * @throws IOException if an I/O exception occurs
+     */
+    public void writeTo(WritableByteChannel out) throws IOException {
+        long index = 0;
+        while (index < length) {
+            long position = offset + index;
+            ByteBuffer segment = segments[(int) (position >>> segmentShift)];
+            int start = (int) (position & segmentMask);
+            int count = (int) Math.min(segment.capacity() - start, length - index);
+            ByteBuffer buffer = range(segment, start, count);
+            while (buffer.hasRemaining()) {
+                out.write(buffer);
+            }
+            index += count;
+        }
+    }
+
+    /**
+     * @return a stream that reads this array from the start, e.g. to pass to
+     * {@link HexDump#dump(InputStream, java.io.Writer)}
+     */
+    public InputStream newInputStream() {
+        return new InputStream() {
+            private long position = 0;
+
+            @Override
+            public int read() {
+                return position < length ? get(position++) & 0xFF : -1;
+            }
+
+            @Override
+            public int read(byte[] b, int off, int len) {
+                checkArrayRange(b.length, off, len);
+                if (len == 0) return 0;
+                if (position >= length) return -1;
+                int count = (int) Math.min(len, length - position);
+                get(position, b, off, count);
+                position += count;
+                return count;
+            }
+
+            @Override
+            public long skip(long n) {
+                long skipped = Math.max(0, Math.min(n, length - position));
+                position += skipped;
+                return skipped;
+            }
+
+            @Override
+            public int available() {
+                return (int) Math.min(Integer.MAX_VALUE, length - position);
+            }
+        };
+    }
+
+    @Override
+    public String toString() {
+        return "LargeByteArray[length=" + length + "]";
+    }
+
+    // Ranges //
+    private interface RangeOperation {
+        void apply(ByteBuffer src, int srcStart, ByteBuffer dst, int dstStart, int length);
+    }
+
+    private static final RangeOperation COPY = (src, srcStart, dst, dstStart, length) ->
+            range(dst, dstStart, length).put(range(src, srcStart, length));
+
+    /**
+     * Inverts 8 bytes at a time. Unlike the loop over a byte[] in {@link ArrayUtils#invertArray(byte[], int, byte[], int, int)},
+     * a loop over single bytes of a buffer is not vectorized by the JIT.
+     */
+    private static final RangeOperation INVERT = (src, srcStart, dst, dstStart, length) -> {
+        int i = 0;
+        for (; i <= length - 8; i += 8) {
+            dst.putLong(dstStart + i, ~src.getLong(srcStart + i));
+        }
+        for (; i < length; i++) {
+            dst.put(dstStart + i, (byte) ~src.get(srcStart + i));
+        }
+    };
+
+    /**
+     * Splits the two ranges where either of them crosses a segment boundary and applies the {@code operation} to every
+     * part.
+     */
+    private static void forEachRange(LargeByteArray src, long srcIndex, LargeByteArray dst, long dstIndex, long length, RangeOperation operation) {
+        while (length > 0) {
+            long srcPosition = src.offset + srcIndex;
+            long dstPosition = dst.offset + dstIndex;
+            ByteBuffer srcSegment = src.segments[(int) (srcPosition >>> src.segmentShift)];
+            ByteBuffer dstSegment = dst.segments[(int) (dstPosition >>> dst.segmentShift)];
+            int srcStart = (int) (srcPosition & src.segmentMask);
+            int dstStart = (int) (dstPosition & dst.segmentMask);
+            int count = (int) Math.min(length, Math.min(srcSegment.capacity() - srcStart, dstSegment.capacity() - dstStart));
+            operation.apply(srcSegment, srcStart, dstSegment, dstStart, count);
+            srcIndex += count;
+            dstIndex += count;
+            length -= count;
+        }
+    }
+
+    /**
+     * @return a view of {@code length} bytes of the {@code segment} from {@code start}, with its own position
+     */
+    private static ByteBuffer range(ByteBuffer segment, int start, int length) {
+        ByteBuffer range = segment.duplicate();
+        // Through Buffer, because ByteBuffer only overrides limit and position since Java 9
+        ((Buffer) range).limit(start + length);
+        ((Buffer) range).position(start);
+        return range;
+    }
+
+    private void checkIndex(long index) {
+        if (index < 0 || index >= length) {
+            throw new IndexOutOfBoundsException("Index " + index + " is outside an array of length " + length);
+        }
+    }
+
+    private void checkRange(long index, long length) {
+        if (index < 0 || length < 0 || index > this.length - length) {
+            throw new IndexOutOfBoundsException("The range [" + index + ", " + index + " + " + length + ") is outside an array of length " + this.length);
+        }
+    }
+
+    private static void checkArrayRange(int arrayLength, int offset, int length) {
+        if (offset < 0 || length < 0 || offset > arrayLength - length) {
+            throw new IndexOutOfBoundsException("The range [" + offset + ", " + offset + " + " + length + ") is outside an array of length " + arrayLength);
+        }
+    }
+}
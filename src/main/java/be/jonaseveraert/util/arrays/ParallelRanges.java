@@ -0,0 +1,113 @@
+package be.jonaseveraert.util.arrays;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Splits a loop over a large array into parts that run in the {@link ForkJoinPool#commonPool() common pool}. The parts
+ * start at a multiple of an alignment in the indexes of one array, so that neighbouring parts mostly work on different
+ * cache lines of that array. Where two parts meet, they can still share a line, because the position of the array in
+ * memory is unknown. When the loop writes to another array that grows at a different rate, as hexadecimal encoding
+ * does, the parts of that output do not start at cache lines at all.
+ * <p>Used by {@link ArrayUtils} and {@link HexCodec} above the {@link ArrayUtils#setParallelThreshold(int) parallel
+ * threshold}.</p>
+ * @since 1.2
+ */
+final class ParallelRanges {
+    static final int CACHE_LINE_SIZE = 64;
+    static final int DEFAULT_THRESHOLD = 4 * 1024 * 1024;
+    /**
+     * The minimum amount of bytes in a part, so that the cost of a task stays small compared to its work
+     */
+    private static final int MIN_PART_SIZE = 256 * 1024;
+    /**
+     * The amount of parts per thread, so that a thread that finishes early can steal work from a slower one
+     */
+    private static final int PARTS_PER_THREAD = 4;
+
+    private static volatile int threshold = DEFAULT_THRESHOLD;
+
+    private ParallelRanges() {}
+
+    interface RangeAction {
+        /**
+         * Does the work for the elements from {@code from} (inclusive) to {@code to} (exclusive).
+         */
+        void apply(int from, int to);
+    }
+
+    static void setThreshold(int threshold) {
+        if (threshold < 0) {
+            throw new IllegalArgumentException("The parallel threshold cannot be negative.");
+        }
+        ParallelRanges.threshold = threshold;
+    }
+
+    static int getThreshold() {
+        return threshold;
+    }
+
+    /**
+     * @param bytes the amount of bytes a loop writes
+     * @return true if the loop should be split over several threads
+     */
+    static boolean isWorthIt(long bytes) {
+        return bytes >= threshold && ForkJoinPool.getCommonPoolParallelism() > 1;
+    }
+
+    /**
+     * Runs {@code action} for the range {@code [0, length)}, split into parts.
+     * @param base the index of element 0 of the range in the array that is aligned, so that the parts can start at
+     *             cache lines of that array
+     * @param elementSize the size in bytes of an element of the written array
+     */
+    static void forEach(int base, int length, int elementSize, RangeAction action) {
+        forEach(base, length, Math.max(1, CACHE_LINE_SIZE / elementSize), MIN_PART_SIZE / elementSize, action);
+    }
+
+    /**
+     * Runs {@code action} for the range {@code [0, length)}, split into parts that start at a multiple of
+     * {@code alignment}.
+     */
+    static void forEach(int base, int length, int alignment, int minPartLength, RangeAction action) {
+        if (length == 0) return;
+        int parts = ForkJoinPool.getCommonPoolParallelism() * PARTS_PER_THREAD;
+        int partLength = Math.max(Math.max(minPartLength, alignment), length / parts);
+        new Part(base, 0, length, alignment, partLength, action).invoke();
+    }
+
+    private static final class Part extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+
+        private final int base;
+        private final int from;
+        private final int to;
+        private final int alignment;
+        private final int partLength;
+        private final RangeAction action;
+
+        Part(int base, int from, int to, int alignment, int partLength, RangeAction action) {
+            this.base = base;
+            this.from = from;
+            this.to = to;
+            this.alignment = alignment;
+            this.partLength = partLength;
+            this.action = action;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from > partLength) {
+                int middle = from + (to - from) / 2;
+                // Move the split forward to the next multiple of the alignment in the aligned array
+                int split = middle + Math.floorMod(-(base + middle), alignment);
+                if (split < to) {
+                    invokeAll(new Part(base, from, split, alignment, partLength, action),
+                            new Part(base, split, to, alignment, partLength, action));
+                    return;
+                }
+            }
+            action.apply(from, to);
+        }
+    }
+}
@@ -1,5 +1,8 @@
 package be.jonaseveraert.util.audio;
 
+import be.jonaseveraert.util.arrays.BufferPool;
+import be.jonaseveraert.util.arrays.ByteArrayBuilder;
+import be.jonaseveraert.util.arrays.HexCodec;
 import be.jonaseveraert.util.progressBar.ProgressBarHandler;
 import org.apache.commons.lang3.ArrayUtils;
 
@@ -12,8 +15,6 @@ import java.io.FileOutputStream;
 import java.io.IOException;
 import java.nio.charset.StandardCharsets;
 import java.nio.file.FileAlreadyExistsException;
-import java.util.ArrayList;
-import java.util.List;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
@@ -177,9 +178,13 @@ public class WaveFileBuilder {
     }
 
     /**
-     * Contains the audio data for the wav file that is being constructed (a list of byte arrays)
+     * Contains the audio data for the wav file that is being constructed
      */
-    private List<byte[]> chunks = new ArrayList<>();
+    private final ByteArrayBuilder audioData = new ByteArrayBuilder();
+    /**
+     * The size of the buffer that {@link #addAudioFile(File) addAudioFile} reads the audio data through
+     */
+    private static final int READ_BUFFER_SIZE = 64 * 1024;
     /**
      * Adds audio data to the wav file from bytes
      * <p>See the "see also" for the structure of the "Data" part of a wav file</p>
@@ -195,7 +200,7 @@ public class WaveFileBuilder {
             // the audioBytes added does not conform the sample size
             throw new IllegalArgumentException("Trying to add a chunk that does not fir evenly; this would cause un-aligned blocks.");
         }
-        this.chunks.add(audioBytes); // Adding the audioBytes to the list of audio bytes
+        this.audioData.appendWithoutCopy(audioBytes); // Adding the audioBytes to the audio data
     }
 
     // TODO: conversion class and add a getParameters method or something to this for the conversion class (to give it the parameters it needs to convert)
@@ -205,38 +210,40 @@ public class WaveFileBuilder {
      * @param file a wav file with the same parameters as the {@code WavFileBuilder}.
      * @throws IOException if an I/O exception occurs
      * @throws UnsupportedAudioFileException if the {@code File} does not point to valid audio file data recognized by the system
-     * @throws IllegalArgumentException (from {@link #addBytes(byte[]) addBytes method}) if the given audioBytes do not
-     * conform to the sample size in bytes. So if it is not divisible by blockAlign, which you can get using the
-     * {@link #getBlockAlign() getBlockAlign} method
+     * @throws IllegalArgumentException never since 1.2: the audio data is read in whole frames of the file, and those
+     * have the same size as the {@link #getBlockAlign() block align} of this builder
      */
     public void addAudioFile(File file) throws UnsupportedAudioFileException, IOException, IllegalArgumentException {
         // TODO: clean up and rewrite
-        AudioInputStream audioInputStream = AudioSystem.getAudioInputStream(file);
-        AudioFormat audioFormat = audioInputStream.getFormat();
-        int bytesPerSample = audioFormat.getFrameSize();
-        if (bytesPerSample == AudioSystem.NOT_SPECIFIED) {
-            // some audio formats may have unspecified frame size
-            // in that case we may read any amount of bytes
-            bytesPerSample = -1;
-        }
-        // frame = sample
-        long numSamples = audioInputStream.getFrameLength();
-
-        // Determine the amount of bytes the data of the file contains
-        int numBytes = (int) (numSamples * bytesPerSample);
-        // Check if it is the same as the WavFileBuilder specifications
-        if (bytesPerSample != (bitsPerSample / 8) * numChannels) {
-            // TODO: make a file converter class and throw an exception here (wrong audio format or something, idk)
-            logger.log(Level.WARNING, "The bytesPerSample of the inputted file does not equal that of the WavFile you are building. TODO: file conversion");
-            throw new RuntimeException("TODO: Inputted wave audio format does not match the audio format specified in the WaveFileBuilder.");
+        try (AudioInputStream audioInputStream = AudioSystem.getAudioInputStream(file)) {
+            AudioFormat audioFormat = audioInputStream.getFormat();
+            int bytesPerSample = audioFormat.getFrameSize();
+            if (bytesPerSample == AudioSystem.NOT_SPECIFIED) {
+                // some audio formats may have unspecified frame size
+                // in that case we may read any amount of bytes
+                bytesPerSample = -1;
+            }
+            // Check if it is the same as the WavFileBuilder specifications
+            if (bytesPerSample != (bitsPerSample / 8) * numChannels) {
+                // TODO: make a file converter class and throw an exception here (wrong audio format or something, idk)
+                logger.log(Level.WARNING, "The bytesPerSample of the inputted file does not equal that of the WavFile you are building. TODO: file conversion");
+                throw new RuntimeException("TODO: Inputted wave audio format does not match the audio format specified in the WaveFileBuilder.");
+            }
+            // Read the audio data through a leased buffer, without an array for the whole file. The stream only returns
+            // whole frames and returns nothing when it is offered less than one frame, so only read a multiple of the
+            // frame size at a time.
+            int frameSize = Math.max(1, bytesPerSample);
+            byte[] buffer = BufferPool.getShared().acquire(READ_BUFFER_SIZE);
+            try {
+                int usable = buffer.length - buffer.length % frameSize;
+                int read;
+                while ((read = audioInputStream.read(buffer, 0, usable)) != -1) {
+                    audioData.append(buffer, 0, read);
+                }
+            } finally {
+                BufferPool.getShared().release(buffer);
+            }
         }
-        byte[] audioBytes = new byte[numBytes];
-        int numBytesRead = 0;
-        // Try to read numBytes bytes from the file
-        while((numBytesRead = audioInputStream.read(audioBytes)) != -1); // TODO: check if still works with ; instead of {}, TODO: check if works without the numBytesRead variable
-
-        // Audio data is now in the audioBytes array
-        this.addBytes(audioBytes); // Add the read audio data to the file (to the list of audio data that will be written to the file)
     }
 
     // TODO: save as mp3 and other formats -> do saveFile in a temp file and then have a AudioConversion classs with static methods to convert wav and other formats to mpp3, ...
@@ -254,11 +261,8 @@ public class WaveFileBuilder {
         // subchunk2 calculations
 
         //int numBytesInData = data.length()/2;
-        int numBytesInData = 0;
-        for (byte[] chunk : chunks) {
-            numBytesInData += chunk.length;
-        }
-        int numSamples = numBytesInData / (2 * numChannels);
+        long numBytesInData = audioData.length();
+        int numSamples = (int) (numBytesInData / (2 * numChannels));
 
         subchunk2Size = numSamples * numChannels * (bitsPerSample / 8);
 
@@ -293,7 +297,7 @@ public class WaveFileBuilder {
         if (trackProgress)
             pbHandler.completeActivity(true);
         // Convert the hex data to a byte array
-        final byte[] BYTES = hexStringToByteArray(AUDIO_BYTE_STREAM_STRING);
+        final byte[] BYTES = HexCodec.UPPER_CASE.decode(AUDIO_BYTE_STREAM_STRING);
         if (trackProgress)
             pbHandler.completeActivity(true);
 
@@ -312,9 +316,8 @@ public class WaveFileBuilder {
             try (FileOutputStream fos = new FileOutputStream(outputFile)) {
                 // Writing the info chunks
                 fos.write(BYTES);
-                // Writing the audio chunks
-                for (byte[] chunk : chunks)
-                    fos.write(chunk);
+                // Writing the audio data, with one gathering write
+                audioData.writeTo(fos.getChannel());
             } // catch Really necessary?
             catch (IOException e) {
                 pbHandler.completeProcess();
@@ -340,20 +343,6 @@ public class WaveFileBuilder {
     }
 
     // Aiding methods
-    /**
-     * Converts a string containing hexadecimal to bytes
-     * @param s e.g. 00014F
-     * @return an array of bytes e.g. {00, 01, 4F}
-     */
-    private byte[] hexStringToByteArray(String s) {
-        int len = s.length();
-        byte[] bytes = new byte[len / 2];
-        for (int i = 0; i < len; i+= 2) {
-            bytes[i / 2] = (byte) ((Character.digit(s.charAt(i), 16) << 4) + Character.digit(s.charAt(i+1), 16));
-        }
-        return bytes;
-    }
-
     /**
      * Converts an int to a hexadecimal string in the little-endian format
      * @param input an integer number
@@ -386,13 +375,7 @@ public class WaveFileBuilder {
      * @return The string as a hexadecimal notation in the big-endian byte ordering
      */
     private String asciiStringToHexString(String input) {
-        byte[] bytes = input.getBytes(StandardCharsets.US_ASCII);
-        StringBuilder hex = new StringBuilder();
-        for (byte b : bytes) {
-            String hexChar = String.format("%02X", b);
-            hex.append(hexChar);
-        }
-        return hex.toString().trim();
+        return HexCodec.UPPER_CASE.encode(input.getBytes(StandardCharsets.US_ASCII));
     }
 
     /**
@@ -428,12 +411,12 @@ public class WaveFileBuilder {
     }
 
     /**
-     * Clears all audio data that is inside the {@link #chunks chunks} variable, meaning that you can reuse
+     * Clears all audio data that is inside the {@link #audioData audioData} variable, meaning that you can reuse
      * the instance of this class to create another audio file with the same specifications.
      * @since 1.0.3
      */
     public void clearAllAudioData() {
-        chunks.clear();
+        audioData.clear();
     }
 
     private boolean pbHandlerOverridden = false;
@@ -0,0 +1,128 @@
+package be.jonaseveraert.util.compression;
+
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.zip.Deflater;
+
+/**
+ * <p>Compresses many small records in one go.</p>
+ * <p>Compressing records one by one with a {@link Compressor} allocates a scratch array and a trimmed copy for every
+ * record. The {@code BatchCompressor} deflates all records with one reused {@link Deflater} straight into one growing
+ * output array (the arena), so the allocations per record drop to almost nothing. Every record is still an independent
+ * ZLIB stream that can be decompressed on its own.</p>
+ * <p>Code example:</p>
+ * <pre>{@code
+ *     BatchCompressor batchCompressor = new BatchCompressor();
+ *     CompressedBatch batch = batchCompressor.compress(records);
+ *
+ *     for (int i = 0; i < batch.size(); i++) {
+ *         // write batch.getArena() from batch.getOffset(i), batch.getLength(i) bytes long
+ *     }
+ *     byte[] firstRecord = batch.decompress(0);
+ * }</pre>
+ *
+ * @author Jonas Everaert
+ * @author <a href="https://jonaseveraert.be">jonaseveraert.be</a>
+ * @since 1.2
+ */
+public class BatchCompressor {
+    private static final int INITIAL_ARENA_SIZE = 64 * 1024;
+    private static final int INITIAL_INDEX_SIZE = 64;
+
+    private int compressionLevel = Compressor.MAX_COMPRESSION;
+    private CompressionDictionary dictionary = null;
+
+    /**
+     * Compresses every record of the list into its own ZLIB stream.
+     * @param records the records that will be compressed
+     * @return the compressed records
+     */
+    public CompressedBatch compress(List<byte[]> records) {
+        long totalLength = 0;
+        for (byte[] record : records) {
+            totalLength += record.length;
+        }
+        // Small records compress to roughly half their size, plus the ZLIB header and trailer
+        int arenaSize = (int) Math.min(Integer.MAX_VALUE - 8, totalLength / 2 + records.size() * 16L + 64);
+        return compress(records.iterator(), arenaSize, Math.max(records.size(), 1));
+    }
+
+    /**
+     * Compresses every record the iterator returns into its own ZLIB stream.
+     * @param records the records that will be compressed
+     * @return the compressed records
+     */
+    public CompressedBatch compress(Iterator<byte[]> records) {
+        return compress(records, INITIAL_ARENA_SIZE, INITIAL_INDEX_SIZE);
+    }
+
+    private CompressedBatch compress(Iterator<byte[]> records, int arenaSize, int indexSize) {
+        byte[] arena = new byte[arenaSize];
+        int[] offsets = new int[indexSize];
+        int[] lengths = new int[indexSize];
+        int[] uncompressedLengths = new int[indexSize];
+        int size = 0;
+        int position = 0;
+
+        Deflater compressor = DeflaterPool.getShared().acquire(this.compressionLevel);
+        try {
+            while (records.hasNext()) {
+                byte[] record = records.next();
+                if (size == offsets.length) {
+                    int newSize = offsets.length * 2;
+                    offsets = Arrays.copyOf(offsets, newSize);
+                    lengths = Arrays.copyOf(lengths, newSize);
+                    uncompressedLengths = Arrays.copyOf(uncompressedLengths, newSize);
+                }
+
+                compressor.reset();
+                if (this.dictionary != null) {
+                    compressor.setDictionary(this.dictionary.bytes());
+                }
+                compressor.setInput(record);
+                compressor.finish();
+                int start = position;
+                while (!compressor.finished()) {
+                    if (position == arena.length) {
+                        arena = Arrays.copyOf(arena, growCapacity(arena.length));
+                    }
+                    position += compressor.deflate(arena, position, arena.length - position);
+                }
+
+                offsets[size] = start;
+                lengths[size] = position - start;
+                uncompressedLengths[size] = record.length;
+                size++;
+            }
+        } finally {
+            DeflaterPool.getShared().release(compressor);
+        }
+        return new CompressedBatch(arena, offsets, lengths, uncompressedLengths, size, this.dictionary);
+    }
+
+    private static int growCapacity(int capacity) {
+        if (capacity >= Integer.MAX_VALUE - 8) {
+            throw new OutOfMemoryError("The compressed batch does not fit in a byte array.");
+        }
+        return (int) Math.min(Math.max((long) capacity * 2, 16), Integer.MAX_VALUE - 8);
+    }
+
+    /**
+     * Sets the compression level, which has to be a value between 0 and 9.
+     * @param level The compression level, a value between 0 and 9. 0 indicates no compression, 9 is highest compression.
+     * @throws InvalidCompressionLevelException Thrown when the {@code level} is not between 0 and 9
+     */
+    public void setCompressionLevel(int level) {
+        Compressor.checkCompressionLevel(level);
+        this.compressionLevel = level;
+    }
+
+    /**
+     * @param dictionary the dictionary every record is compressed with, or null to compress without a dictionary
+     * @see Compressor#setDictionary(CompressionDictionary)
+     */
+    public void setDictionary(CompressionDictionary dictionary) {
+        this.dictionary = dictionary;
+    }
+}
@@ -0,0 +1,61 @@
+package be.jonaseveraert.util.compression;
+
+import java.util.zip.DataFormatException;
+
+/**
+ * <p>A compression format. All codecs are lossless and work on whole byte arrays.</p>
+ * <p>The codecs of this library can be found in {@link Codecs}: {@link ZlibCodec ZLIB}, {@link DeflateCodec raw deflate},
+ * {@link GzipCodec GZIP} and the pure-Java {@link Lz4Codec LZ4} codec, which compresses less but is several times faster
+ * than deflate. Other libraries can add codecs by implementing this interface and listing the implementation in
+ * {@code META-INF/services/be.jonaseveraert.util.compression.Codec}; they can then be found with
+ * {@link Codecs#forName(String)}.</p>
+ * <p>Implementations must be thread-safe.</p>
+ *
+ * @author Jonas Everaert
+ * @author <a href="https://jonaseveraert.be">jonaseveraert.be</a>
+ * @since 1.2
+ */
+public interface Codec {
+    /**
+     * @return the name the codec can be found by with {@link Codecs#forName(String)}, e.g. "zlib"
+     */
+    String getName();
+
+    /**
+     * Compresses a part of an array.
+     * @param input an array containing the data
+     * @param offset the offset of the data in the array
+     * @param length the length of the data
+     * @return the compressed data
+     */
+    byte[] compress(byte[] input, int offset, int length);
+
+    /**
+     * Compresses an array.
+     * @param input the data
+     * @return the compressed data
+     */
+    default byte[] compress(byte[] input) {
+        return compress(input, 0, input.length);
+    }
+
+    /**
+     * Decompresses a part of an array that was compressed by this codec.
+     * @param input an array containing the compressed data
+     * @param offset the offset of the compressed data in the array
+     * @param length the length of the compressed data
+     * @return the decompressed data
+     * @throws DataFormatException if the compressed data is invalid
+     */
+    byte[] decompress(byte[] input, int offset, int length) throws DataFormatException;
+
+    /**
+     * Decompresses an array that was compressed by this codec.
+     * @param input the compressed data
+     * @return the decompressed data
+     * @throws DataFormatException if the compressed data is invalid
+     */
+    default byte[] decompress(byte[] input) throws DataFormatException {
+        return decompress(input, 0, input.length);
+    }
+}
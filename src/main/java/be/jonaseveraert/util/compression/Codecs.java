@@ -0,0 +1,69 @@
+package be.jonaseveraert.util.compression;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.ServiceLoader;
+
+/**
+ * <p>The {@link Codec codecs} of this library, and a lookup by name that also finds codecs of other libraries through
+ * the {@link ServiceLoader}.</p>
+ * <p>Code example:</p>
+ * <pre>{@code
+ *     Codec codec = hotPath ? Codecs.LZ4 : Codecs.ZLIB;
+ *     byte[] compressed = codec.compress(payload);
+ *     byte[] decompressed = codec.decompress(compressed);
+ * }</pre>
+ *
+ * @author Jonas Everaert
+ * @author <a href="https://jonaseveraert.be">jonaseveraert.be</a>
+ * @since 1.2
+ */
+public abstract class Codecs {
+    public static final Codec ZLIB = new ZlibCodec();
+    public static final Codec DEFLATE = new DeflateCodec();
+    public static final Codec GZIP = new GzipCodec();
+    public static final Codec LZ4 = new Lz4Codec();
+
+    private static final List<Codec> BUILT_IN;
+    static {
+        List<Codec> codecs = new ArrayList<>();
+        codecs.add(ZLIB);
+        codecs.add(DEFLATE);
+        codecs.add(GZIP);
+        codecs.add(LZ4);
+        BUILT_IN = Collections.unmodifiableList(codecs);
+    }
+
+    /**
+     * Finds a codec by its {@link Codec#getName() name}. The codecs of this library are checked first, then the codecs
+     * that are registered as a service.
+     * @param name the name of the codec, e.g. "lz4". Case-insensitive.
+     * @return the codec
+     * @throws IllegalArgumentException if there is no codec with the name
+     */
+    public static Codec forName(String name) {
+        for (Codec codec : BUILT_IN) {
+            if (codec.getName().equalsIgnoreCase(name)) {
+                return codec;
+            }
+        }
+        for (Codec codec : ServiceLoader.load(Codec.class)) {
+            if (codec.getName().equalsIgnoreCase(name)) {
+                return codec;
+            }
+        }
+        throw new IllegalArgumentException("There is no codec with the name " + name);
+    }
+
+    /**
+     * @return the codecs of this library followed by the codecs that are registered as a service
+     */
+    public static List<Codec> getAvailableCodecs() {
+        List<Codec> codecs = new ArrayList<>(BUILT_IN);
+        for (Codec codec : ServiceLoader.load(Codec.class)) {
+            codecs.add(codec);
+        }
+        return codecs;
+    }
+}
@@ -0,0 +1,137 @@
+package be.jonaseveraert.util.compression;
+
+import be.jonaseveraert.util.arrays.ByteSlice;
+
+import java.util.Arrays;
+import java.util.zip.DataFormatException;
+import java.util.zip.Inflater;
+
+/**
+ * <p>The result of a {@link BatchCompressor}: one array (the arena) containing all compressed records after each other,
+ * and an index with the offset and length of every record in the arena.</p>
+ * <p>Every record is a complete ZLIB stream, so a record can also be decompressed with a {@link Decompressor} after
+ * copying it out of the arena.</p>
+ *
+ * @author Jonas Everaert
+ * @author <a href="https://jonaseveraert.be">jonaseveraert.be</a>
+ * @since 1.2
+ */
+public final class CompressedBatch {
+    private final byte[] arena;
+    private final int[] offsets;
+    private final int[] lengths;
+    private final int[] uncompressedLengths;
+    private final int size;
+    private final CompressionDictionary dictionary;
+
+    CompressedBatch(byte[] arena, int[] offsets, int[] lengths, int[] uncompressedLengths, int size, CompressionDictionary dictionary) {
+        this.arena = arena;
+        this.offsets = offsets;
+        this.lengths = lengths;
+        this.uncompressedLengths = uncompressedLengths;
+        this.size = size;
+        this.dictionary = dictionary;
+    }
+
+    /**
+     * @return the amount of records in the batch
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * @return the array containing all compressed records. It is not copied and can be bigger than the compressed data;
+     * use {@link #getOffset(int)} and {@link #getLength(int)} to find the records.
+     */
+    public byte[] getArena() {
+        return arena;
+    }
+
+    /**
+     * @return the amount of bytes used in the {@link #getArena() arena}
+     */
+    public int getArenaLength() {
+        return size == 0 ? 0 : offsets[size - 1] + lengths[size - 1];
+    }
+
+    /**
+     * @param index the index of the record
+     * @return the offset of the compressed record in the {@link #getArena() arena}
+     */
+    public int getOffset(int index) {
+        checkIndex(index);
+        return offsets[index];
+    }
+
+    /**
+     * @param index the index of the record
+     * @return the length of the compressed record
+     */
+    public int getLength(int index) {
+        checkIndex(index);
+        return lengths[index];
+    }
+
+    /**
+     * @param index the index of the record
+     * @return the length of the record before it was compressed
+     */
+    public int getUncompressedLength(int index) {
+        checkIndex(index);
+        return uncompressedLengths[index];
+    }
+
+    /**
+     * @param index the index of the record
+     * @return a copy of the compressed record
+     */
+    public byte[] getCompressed(int index) {
+        checkIndex(index);
+        return Arrays.copyOfRange(arena, offsets[index], offsets[index] + lengths[index]);
+    }
+
+    /**
+     * @param index the index of the record
+     * @return a view of the compressed record in the arena, without copying
+     * @since 1.2
+     */
+    public ByteSlice getCompressedSlice(int index) {
+        checkIndex(index);
+        return ByteSlice.wrap(arena, offsets[index], lengths[index]);
+    }
+
+    /**
+     * Decompresses one record straight out of the arena.
+     * @param index the index of the record
+     * @return the decompressed record
+     * @throws DataFormatException if the compressed record is invalid
+     */
+    public byte[] decompress(int index) throws DataFormatException {
+        checkIndex(index);
+        byte[] output = new byte[uncompressedLengths[index]];
+        Inflater decompressor = InflaterPool.getShared().acquire();
+        try {
+            decompressor.setInput(arena, offsets[index], lengths[index]);
+            int position = 0;
+            while (!decompressor.finished()) {
+                int inflated = decompressor.inflate(output, position, output.length - position);
+                if (inflated == 0 && decompressor.needsDictionary() && dictionary != null) {
+                    decompressor.setDictionary(dictionary.bytes());
+                } else if (inflated == 0 && !decompressor.finished()) {
+                    throw new DataFormatException("The compressed record is invalid.");
+                }
+                position += inflated;
+            }
+            return output;
+        } finally {
+            InflaterPool.getShared().release(decompressor);
+        }
+    }
+
+    private void checkIndex(int index) {
+        if (index < 0 || index >= size) {
+            throw new IndexOutOfBoundsException("Index " + index + " is out of bounds for a batch of " + size + " records.");
+        }
+    }
+}
@@ -0,0 +1,147 @@
+package be.jonaseveraert.util.compression;
+
+/**
+ * <p>Cheaply estimates whether data is worth compressing, without compressing it.</p>
+ * <p>Already compressed data (images, audio, video, archives) and encrypted data look like random bytes. The estimator
+ * samples at most {@link #SAMPLE_SIZE} bytes spread over the data and looks at two things:</p>
+ * <ul>
+ *     <li>the order-0 Shannon entropy of the sampled bytes, in bits per byte (8 for random data)</li>
+ *     <li>how many 4-byte sequences in the sample were already seen earlier in the sample, which catches repetitions
+ *     that the entropy does not show</li>
+ * </ul>
+ * <p>Data is considered incompressible when the entropy is above the {@link #setMaxEntropy(double) maximum entropy}
+ * and hardly any repetitions were found.</p>
+ * <p>Code example:</p>
+ * <pre>{@code
+ *     if (new CompressibilityEstimator().isCompressible(payload)) {
+ *         payload = new Compressor(payload).compress();
+ *     }
+ * }</pre>
+ *
+ * @author Jonas Everaert
+ * @author <a href="https://jonaseveraert.be">jonaseveraert.be</a>
+ * @since 1.2
+ * @see Compressor#setCompressibilityCheck(boolean)
+ */
+public class CompressibilityEstimator {
+    /**
+     * The maximum amount of bytes that are sampled
+     */
+    public static final int SAMPLE_SIZE = 4096;
+    /**
+     * The size of the windows in which the bytes are sampled
+     */
+    private static final int WINDOW_SIZE = 256;
+    /**
+     * The default maximum entropy in bits per byte. A sample of random bytes of {@link #SAMPLE_SIZE} scores around 7.95.
+     */
+    public static final double DEFAULT_MAX_ENTROPY = 7.5;
+    /**
+     * The fraction of repeated 4-byte sequences above which the data is always considered compressible
+     */
+    private static final double MIN_REPEATED_FRACTION = 0.05;
+    private static final int HASH_BITS = 12;
+
+    private double maxEntropy = DEFAULT_MAX_ENTROPY;
+
+    /**
+     * @param data the data that might be compressed
+     * @return true if compressing the {@code data} is likely to make it smaller
+     */
+    public boolean isCompressible(byte[] data) {
+        return isCompressible(data, 0, data.length);
+    }
+
+    /**
+     * @param data an array containing the data that might be compressed
+     * @param offset the offset of the data in the array
+     * @param length the length of the data
+     * @return true if compressing the data is likely to make it smaller
+     */
+    public boolean isCompressible(byte[] data, int offset, int length) {
+        Sample sample = new Sample(data, offset, length);
+        if (sample.size == 0) {
+            return false;
+        }
+        if (sample.repeated > sample.size * MIN_REPEATED_FRACTION) {
+            return true;
+        }
+        return sample.entropy() <= maxEntropy;
+    }
+
+    /**
+     * Estimates the order-0 entropy of the data.
+     * @param data the data
+     * @return the entropy of the sampled bytes in bits per byte, between 0 and 8
+     */
+    public static double estimateEntropy(byte[] data) {
+        return new Sample(data, 0, data.length).entropy();
+    }
+
+    /**
+     * The statistics of evenly spaced windows of the data, or of all data if it is small.
+     */
+    private static final class Sample {
+        private final int[] counts = new int[256];
+        private int size;
+        private int repeated;
+
+        private Sample(byte[] data, int offset, int length) {
+            // The last 4-byte sequence seen per hash slot; a repeat is only counted when the sequence really matches
+            int[] sequences = new int[1 << HASH_BITS];
+            boolean[] filled = new boolean[1 << HASH_BITS];
+
+            int numWindows = length <= SAMPLE_SIZE ? 1 : SAMPLE_SIZE / WINDOW_SIZE;
+            int windowSize = length <= SAMPLE_SIZE ? length : WINDOW_SIZE;
+            long stride = numWindows == 1 ? 0 : (long) (length - windowSize) / (numWindows - 1);
+            for (int w = 0; w < numWindows; w++) {
+                int start = offset + (int) (w * stride);
+                int sequence = 0;
+                for (int i = start; i < start + windowSize; i++) {
+                    int b = data[i] & 0xFF;
+                    counts[b]++;
+                    sequence = (sequence << 8) | b;
+                    if (i - start >= 3) {
+                        int slot = (sequence * 0x9E3779B1) >>> (32 - HASH_BITS);
+                        if (filled[slot] && sequences[slot] == sequence) {
+                            repeated++;
+                        }
+                        filled[slot] = true;
+                        sequences[slot] = sequence;
+                    }
+                }
+                size += windowSize;
+            }
+        }
+
+        private double entropy() {
+            return CompressibilityEstimator.entropy(counts, size);
+        }
+    }
+
+    private static double entropy(int[] counts, int total) {
+        if (total == 0) {
+            return 0;
+        }
+        double entropy = 0;
+        for (int count : counts) {
+            if (count != 0) {
+                double p = (double) count / total;
+                entropy -= p * Math.log(p);
+            }
+        }
+        return entropy / Math.log(2);
+    }
+
+    /**
+     * Sets the entropy above which data is considered incompressible.
+     * @param maxEntropy the maximum entropy in bits per byte, between 0 and 8. Defaults to {@link #DEFAULT_MAX_ENTROPY}.
+     * @throws IllegalArgumentException if the {@code maxEntropy} is not between 0 and 8
+     */
+    public void setMaxEntropy(double maxEntropy) {
+        if (maxEntropy < 0 || maxEntropy > 8) {
+            throw new IllegalArgumentException("The maximum entropy has to be between 0 and 8 bits per byte.");
+        }
+        this.maxEntropy = maxEntropy;
+    }
+}
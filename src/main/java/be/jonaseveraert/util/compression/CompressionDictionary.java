@@ -0,0 +1,76 @@
+package be.jonaseveraert.util.compression;
+
+import java.util.Arrays;
+import java.util.zip.Adler32;
+
+/**
+ * <p>A preset dictionary for the ZLIB format.</p>
+ * <p>Small messages do not contain enough repetitions to compress well on their own. When the {@link Compressor} and the
+ * {@link Decompressor} share a dictionary with content that is typical for the messages (e.g. the keys of a JSON
+ * format), the messages can refer to the dictionary instead. A good dictionary can be made from sample messages with
+ * the {@link DictionaryTrainer}.</p>
+ * <p>Only the last 32 KB of a dictionary are used by the ZLIB format.</p>
+ *
+ * @author Jonas Everaert
+ * @author <a href="https://jonaseveraert.be">jonaseveraert.be</a>
+ * @since 1.2
+ */
+public final class CompressionDictionary {
+    /**
+     * The maximum size of a dictionary that is used by the ZLIB format
+     */
+    public static final int MAX_SIZE = 32 * 1024;
+
+    private final byte[] bytes;
+    private final int id;
+
+    /**
+     * @param bytes the content of the dictionary. The array is copied.
+     */
+    public CompressionDictionary(byte[] bytes) {
+        this.bytes = bytes.clone();
+        Adler32 adler = new Adler32();
+        adler.update(this.bytes);
+        this.id = (int) adler.getValue();
+    }
+
+    /**
+     * @return a copy of the content of the dictionary
+     */
+    public byte[] getBytes() {
+        return bytes.clone();
+    }
+
+    /**
+     * The id of the dictionary is the Adler-32 checksum of its content, the same value the ZLIB format stores in its
+     * header.
+     * @return the id of the dictionary
+     */
+    public int getId() {
+        return id;
+    }
+
+    public int size() {
+        return bytes.length;
+    }
+
+    /**
+     * @return the content of the dictionary, without copying it
+     */
+    byte[] bytes() {
+        return bytes;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (!(o instanceof CompressionDictionary)) return false;
+        CompressionDictionary that = (CompressionDictionary) o;
+        return id == that.id && Arrays.equals(bytes, that.bytes);
+    }
+
+    @Override
+    public int hashCode() {
+        return id;
+    }
+}
@@ -0,0 +1,78 @@
+package be.jonaseveraert.util.compression;
+
+import java.util.Arrays;
+
+/**
+ * <p>The registry of {@link CompressionListener CompressionListeners}.</p>
+ * <p>When no listener is added, the {@link Compressor} and {@link Decompressor} only pay for one volatile read per call;
+ * the clock is not even read.</p>
+ * <p>Code example:</p>
+ * <pre>{@code
+ *     CompressionMetrics metrics = new CompressionMetrics();
+ *     CompressionInstrumentation.addListener(metrics);
+ *     metrics.registerMBean(); // optional: expose the metrics over JMX
+ * }</pre>
+ *
+ * @author Jonas Everaert
+ * @author <a href="https://jonaseveraert.be">jonaseveraert.be</a>
+ * @since 1.2
+ */
+public abstract class CompressionInstrumentation {
+    private static final CompressionListener[] NO_LISTENERS = new CompressionListener[0];
+    private static volatile CompressionListener[] listeners = NO_LISTENERS;
+
+    /**
+     * @param listener the listener that will receive the events of all compressors and decompressors
+     */
+    public static synchronized void addListener(CompressionListener listener) {
+        CompressionListener[] newListeners = Arrays.copyOf(listeners, listeners.length + 1);
+        newListeners[listeners.length] = listener;
+        listeners = newListeners;
+    }
+
+    /**
+     * @param listener a listener that was added before
+     */
+    public static synchronized void removeListener(CompressionListener listener) {
+        for (int i = 0; i < listeners.length; i++) {
+            if (listeners[i] == listener) {
+                CompressionListener[] newListeners = new CompressionListener[listeners.length - 1];
+                System.arraycopy(listeners, 0, newListeners, 0, i);
+                System.arraycopy(listeners, i + 1, newListeners, i, listeners.length - i - 1);
+                listeners = newListeners;
+                return;
+            }
+        }
+    }
+
+    /**
+     * @return the current time in nanoseconds, or 0 when there are no listeners
+     */
+    static long start() {
+        return listeners.length == 0 ? 0 : System.nanoTime();
+    }
+
+    static void compressed(int compressionLevel, long bytesIn, long bytesOut, long start) {
+        CompressionListener[] listeners = CompressionInstrumentation.listeners;
+        if (listeners.length == 0) return;
+        long nanos = start == 0 ? 0 : System.nanoTime() - start;
+        for (CompressionListener listener : listeners) {
+            listener.compressed(compressionLevel, bytesIn, bytesOut, nanos);
+        }
+    }
+
+    static void rejected(int compressionLevel, long bytesIn) {
+        for (CompressionListener listener : listeners) {
+            listener.rejected(compressionLevel, bytesIn);
+        }
+    }
+
+    static void decompressed(long bytesIn, long bytesOut, long start) {
+        CompressionListener[] listeners = CompressionInstrumentation.listeners;
+        if (listeners.length == 0) return;
+        long nanos = start == 0 ? 0 : System.nanoTime() - start;
+        for (CompressionListener listener : listeners) {
+            listener.decompressed(bytesIn, bytesOut, nanos);
+        }
+    }
+}
@@ -0,0 +1,39 @@
+package be.jonaseveraert.util.compression;
+
+/**
+ * <p>Receives an event for every call to the {@link Compressor} and {@link Decompressor}. Listeners are added with
+ * {@link CompressionInstrumentation#addListener(CompressionListener)}.</p>
+ * <p>The events are delivered on the thread that did the work, so listeners must be thread-safe and fast.
+ * {@link CompressionMetrics} is a ready-made listener that keeps counters and latency histograms.</p>
+ *
+ * @author Jonas Everaert
+ * @author <a href="https://jonaseveraert.be">jonaseveraert.be</a>
+ * @since 1.2
+ */
+public interface CompressionListener {
+    /**
+     * Called after data was compressed.
+     * @param compressionLevel the compression level that was used
+     * @param bytesIn the amount of uncompressed bytes
+     * @param bytesOut the amount of compressed bytes, including a frame header
+     * @param nanos the time the call took in nanoseconds
+     */
+    default void compressed(int compressionLevel, long bytesIn, long bytesOut, long nanos) {}
+
+    /**
+     * Called when the input of {@link Compressor#compress()} was not compressed, because the output would not have
+     * been smaller or because the {@link Compressor#setCompressibilityCheck(boolean) compressibility check} rejected
+     * it. If a stored frame is returned, {@link #compressed(int, long, long, long)} is called as well.
+     * @param compressionLevel the compression level that was used
+     * @param bytesIn the amount of uncompressed bytes
+     */
+    default void rejected(int compressionLevel, long bytesIn) {}
+
+    /**
+     * Called after data was decompressed.
+     * @param bytesIn the amount of compressed bytes
+     * @param bytesOut the amount of decompressed bytes
+     * @param nanos the time the call took in nanoseconds
+     */
+    default void decompressed(long bytesIn, long bytesOut, long nanos) {}
+}
@@ -0,0 +1,227 @@
+package be.jonaseveraert.util.compression;
+
+import javax.management.InstanceAlreadyExistsException;
+import javax.management.InstanceNotFoundException;
+import javax.management.JMException;
+import javax.management.MBeanRegistrationException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * <p>A {@link CompressionListener} that counts bytes in and out, calls and rejections, and keeps latency histograms.
+ * The counters are {@link LongAdder LongAdders}, so recording an event from many threads stays cheap.</p>
+ * <p>The bytes are also counted per compression level, so that the ratio a level achieves for a kind of payload can be
+ * compared. The metrics can be exposed over JMX with {@link #registerMBean()}. For a code example, see
+ * {@link CompressionInstrumentation}.</p>
+ *
+ * @author Jonas Everaert
+ * @author <a href="https://jonaseveraert.be">jonaseveraert.be</a>
+ * @since 1.2
+ */
+public class CompressionMetrics implements CompressionListener, CompressionMetricsMBean {
+    public static final String DEFAULT_OBJECT_NAME = "be.jonaseveraert.util.compression:type=CompressionMetrics";
+
+    private final LongAdder compressCount = new LongAdder();
+    private final LongAdder compressBytesIn = new LongAdder();
+    private final LongAdder compressBytesOut = new LongAdder();
+    private final LongAdder[] bytesInPerLevel = newAdders(10);
+    private final LongAdder[] bytesOutPerLevel = newAdders(10);
+    private final LongAdder rejectedCount = new LongAdder();
+    private final LongAdder decompressCount = new LongAdder();
+    private final LongAdder decompressBytesIn = new LongAdder();
+    private final LongAdder decompressBytesOut = new LongAdder();
+    private final LatencyHistogram compressLatency = new LatencyHistogram();
+    private final LatencyHistogram decompressLatency = new LatencyHistogram();
+
+    private ObjectName objectName;
+
+    @Override
+    public void compressed(int compressionLevel, long bytesIn, long bytesOut, long nanos) {
+        compressCount.increment();
+        compressBytesIn.add(bytesIn);
+        compressBytesOut.add(bytesOut);
+        if (compressionLevel >= 0 && compressionLevel <= 9) {
+            bytesInPerLevel[compressionLevel].add(bytesIn);
+            bytesOutPerLevel[compressionLevel].add(bytesOut);
+        }
+        compressLatency.record(nanos);
+    }
+
+    @Override
+    public void rejected(int compressionLevel, long bytesIn) {
+        rejectedCount.increment();
+    }
+
+    @Override
+    public void decompressed(long bytesIn, long bytesOut, long nanos) {
+        decompressCount.increment();
+        decompressBytesIn.add(bytesIn);
+        decompressBytesOut.add(bytesOut);
+        decompressLatency.record(nanos);
+    }
+
+    // JMX //
+    /**
+     * Registers the metrics with the platform MBean server under {@link #DEFAULT_OBJECT_NAME}.
+     * @throws IllegalStateException if the registration fails, e.g. because another instance is registered already
+     */
+    public void registerMBean() {
+        registerMBean(DEFAULT_OBJECT_NAME);
+    }
+
+    /**
+     * Registers the metrics with the platform MBean server.
+     * @param name the JMX object name, e.g. {@code be.jonaseveraert.util.compression:type=CompressionMetrics,name=messages}
+     * @throws IllegalStateException if the registration fails, e.g. because another instance is registered under the name
+     */
+    public synchronized void registerMBean(String name) {
+        try {
+            ObjectName objectName = new ObjectName(name);
+            ManagementFactory.getPlatformMBeanServer().registerMBean(this, objectName);
+            this.objectName = objectName;
+        } catch (InstanceAlreadyExistsException e) {
+            throw new IllegalStateException("Another MBean is already registered as " + name, e);
+        } catch (JMException e) {
+            throw new IllegalStateException("The metrics could not be registered as " + name, e);
+        }
+    }
+
+    /**
+     * Unregisters the metrics from the platform MBean server, if they were registered.
+     */
+    public synchronized void unregisterMBean() {
+        if (objectName == null) return;
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        try {
+            server.unregisterMBean(objectName);
+        } catch (InstanceNotFoundException | MBeanRegistrationException e) {
+            // Already gone
+        }
+        objectName = null;
+    }
+
+    // Getters //
+    @Override
+    public long getCompressCount() {
+        return compressCount.sum();
+    }
+
+    @Override
+    public long getCompressBytesIn() {
+        return compressBytesIn.sum();
+    }
+
+    @Override
+    public long getCompressBytesOut() {
+        return compressBytesOut.sum();
+    }
+
+    @Override
+    public double getCompressionRatio() {
+        long in = compressBytesIn.sum();
+        return in == 0 ? 1 : (double) compressBytesOut.sum() / in;
+    }
+
+    @Override
+    public double[] getCompressionRatioPerLevel() {
+        double[] ratios = new double[10];
+        for (int level = 0; level < 10; level++) {
+            long in = bytesInPerLevel[level].sum();
+            ratios[level] = in == 0 ? Double.NaN : (double) bytesOutPerLevel[level].sum() / in;
+        }
+        return ratios;
+    }
+
+    @Override
+    public long getRejectedCount() {
+        return rejectedCount.sum();
+    }
+
+    @Override
+    public long getDecompressCount() {
+        return decompressCount.sum();
+    }
+
+    @Override
+    public long getDecompressBytesIn() {
+        return decompressBytesIn.sum();
+    }
+
+    @Override
+    public long getDecompressBytesOut() {
+        return decompressBytesOut.sum();
+    }
+
+    @Override
+    public long getCompressLatencyP50Nanos() {
+        return compressLatency.getPercentile(50);
+    }
+
+    @Override
+    public long getCompressLatencyP99Nanos() {
+        return compressLatency.getPercentile(99);
+    }
+
+    @Override
+    public long getDecompressLatencyP50Nanos() {
+        return decompressLatency.getPercentile(50);
+    }
+
+    @Override
+    public long getDecompressLatencyP99Nanos() {
+        return decompressLatency.getPercentile(99);
+    }
+
+    /**
+     * @return the histogram of the time per compression call
+     */
+    public LatencyHistogram getCompressLatency() {
+        return compressLatency;
+    }
+
+    /**
+     * @return the histogram of the time per decompression call
+     */
+    public LatencyHistogram getDecompressLatency() {
+        return decompressLatency;
+    }
+
+    @Override
+    public int getDeflaterCount() {
+        return DeflaterPool.getShared().getLiveCount();
+    }
+
+    @Override
+    public int getInflaterCount() {
+        return InflaterPool.getShared().getLiveCount();
+    }
+
+    @Override
+    public long getEstimatedNativeMemory() {
+        return DeflaterPool.getShared().getEstimatedNativeMemory() + InflaterPool.getShared().getEstimatedNativeMemory();
+    }
+
+    @Override
+    public void reset() {
+        for (LongAdder adder : new LongAdder[]{compressCount, compressBytesIn, compressBytesOut, rejectedCount,
+                decompressCount, decompressBytesIn, decompressBytesOut}) {
+            adder.reset();
+        }
+        for (int level = 0; level < 10; level++) {
+            bytesInPerLevel[level].reset();
+            bytesOutPerLevel[level].reset();
+        }
+        compressLatency.reset();
+        decompressLatency.reset();
+    }
+
+    private static LongAdder[] newAdders(int count) {
+        LongAdder[] adders = new LongAdder[count];
+        for (int i = 0; i < count; i++) {
+            adders[i] = new LongAdder();
+        }
+        return adders;
+    }
+}
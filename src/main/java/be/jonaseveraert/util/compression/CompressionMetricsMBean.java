@@ -0,0 +1,59 @@
+package be.jonaseveraert.util.compression;
+
+/**
+ * The JMX interface of the {@link CompressionMetrics}.
+ *
+ * @author Jonas Everaert
+ * @author <a href="https://jonaseveraert.be">jonaseveraert.be</a>
+ * @since 1.2
+ */
+public interface CompressionMetricsMBean {
+    long getCompressCount();
+
+    long getCompressBytesIn();
+
+    long getCompressBytesOut();
+
+    /**
+     * @return the compressed size divided by the uncompressed size of all compressed data, or 1 if nothing was compressed
+     */
+    double getCompressionRatio();
+
+    /**
+     * @return the compression ratio per compression level (index 0 to 9), or NaN for levels that were not used
+     */
+    double[] getCompressionRatioPerLevel();
+
+    long getRejectedCount();
+
+    long getDecompressCount();
+
+    long getDecompressBytesIn();
+
+    long getDecompressBytesOut();
+
+    long getCompressLatencyP50Nanos();
+
+    long getCompressLatencyP99Nanos();
+
+    long getDecompressLatencyP50Nanos();
+
+    long getDecompressLatencyP99Nanos();
+
+    /**
+     * @return the amount of live {@code Deflaters} of the shared {@link DeflaterPool}
+     */
+    int getDeflaterCount();
+
+    /**
+     * @return the amount of live {@code Inflaters} of the shared {@link InflaterPool}
+     */
+    int getInflaterCount();
+
+    /**
+     * @return the estimated native memory held by the shared pools in bytes
+     */
+    long getEstimatedNativeMemory();
+
+    void reset();
+}
@@ -0,0 +1,258 @@
+package be.jonaseveraert.util.compression;
+
+import java.lang.reflect.Method;
+import java.nio.ByteBuffer;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * <p>Compresses and decompresses in the background, so that request handlers do not block on the {@link Compressor}.</p>
+ * <p>At most {@code maxConcurrency} jobs run at the same time and at most {@code queueCapacity} more jobs wait. When
+ * the service is full, new jobs are not accepted: the returned future fails immediately with a
+ * {@link RejectedExecutionException}. This is the backpressure signal; callers can also check {@link #isSaturated()}
+ * before submitting, and compress inline or shed load instead.</p>
+ * <p>On Java 21 and later, every job runs on its own virtual thread. On older versions a fixed pool of
+ * {@code maxConcurrency} daemon threads is used.</p>
+ * <p>Code example:</p>
+ * <pre>{@code
+ *     CompressionService service = new CompressionService(4, 1000);
+ *     service.setFramed(true);
+ *     service.compress(payload).whenComplete((compressed, error) -> {
+ *         if (error == null) send(compressed);
+ *         else send(payload); // rejected, or not compressible
+ *     });
+ *     ...
+ *     service.close();
+ * }</pre>
+ *
+ * @author Jonas Everaert
+ * @author <a href="https://jonaseveraert.be">jonaseveraert.be</a>
+ * @since 1.2
+ */
+public class CompressionService implements AutoCloseable {
+    private final ExecutorService executor;
+    private final boolean virtualThreads;
+    /**
+     * Jobs that are running or waiting; bounds the queue
+     */
+    private final Semaphore admitted;
+    /**
+     * Jobs that are running; only used with virtual threads, a fixed pool bounds itself
+     */
+    private final Semaphore running;
+    private final int capacity;
+
+    private volatile int compressionLevel = Compressor.MAX_COMPRESSION;
+    private volatile boolean framed = false;
+    private volatile boolean storeIncompressible = false;
+
+    /**
+     * @param maxConcurrency the maximum amount of jobs that run at the same time, e.g. the amount of cores
+     * @param queueCapacity the maximum amount of jobs that wait for a free slot
+     * @throws IllegalArgumentException if {@code maxConcurrency} is not positive or {@code queueCapacity} is negative
+     */
+    public CompressionService(int maxConcurrency, int queueCapacity) {
+        if (maxConcurrency <= 0 || queueCapacity < 0) {
+            throw new IllegalArgumentException("The concurrency has to be positive and the queue capacity cannot be negative.");
+        }
+        this.capacity = maxConcurrency + queueCapacity;
+        this.admitted = new Semaphore(capacity);
+        this.running = new Semaphore(maxConcurrency);
+
+        ExecutorService virtualThreadExecutor = newVirtualThreadExecutor();
+        this.virtualThreads = virtualThreadExecutor != null;
+        this.executor = virtualThreads ? virtualThreadExecutor : newFixedThreadPool(maxConcurrency);
+    }
+
+    /**
+     * @return an executor that starts a virtual thread per task, or null before Java 21
+     */
+    private static ExecutorService newVirtualThreadExecutor() {
+        try {
+            Method method = java.util.concurrent.Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+            return (ExecutorService) method.invoke(null);
+        } catch (ReflectiveOperationException | RuntimeException e) {
+            return null;
+        }
+    }
+
+    private static ExecutorService newFixedThreadPool(int threads) {
+        final AtomicInteger count = new AtomicInteger();
+        ThreadFactory threadFactory = runnable -> {
+            Thread thread = new Thread(runnable, "compression-service-" + count.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
+        // The queue is bounded by the admitted semaphore
+        return new ThreadPoolExecutor(threads, threads, 0, TimeUnit.MILLISECONDS, new LinkedBlockingQueue<>(), threadFactory);
+    }
+
+    /**
+     * Compresses the {@code input} in the background, with the settings this service has at the time of this call.
+     * @param input the bytes that will be compressed. They should not be changed until the future completes.
+     * @return a future that completes with the compressed bytes. It fails with a {@link ByteArrayCannotBeCompressedException}
+     * if the input could not be compressed and {@link #setStoreIncompressible(boolean) storeIncompressible} is disabled,
+     * or with a {@link RejectedExecutionException} if the service is full or closed.
+     */
+    public CompletableFuture<byte[]> compress(final byte[] input) {
+        final Compressor compressor = newCompressor(input, compressionLevel, framed, storeIncompressible);
+        return submit(compressor::compress);
+    }
+
+    /**
+     * Compresses the remaining bytes of the {@code input} in the background, with the settings this service has at the
+     * time of this call. The position of the buffer is not changed.
+     * @param input the bytes that will be compressed. They should not be changed until the future completes.
+     * @return a future that completes with the compressed bytes. See {@link #compress(byte[])}.
+     */
+    public CompletableFuture<byte[]> compress(ByteBuffer input) {
+        final ByteBuffer duplicate = input.duplicate();
+        // The settings are read now, so that a setter called while the job waits does not change it
+        final int level = compressionLevel;
+        final boolean framed = this.framed;
+        final boolean store = storeIncompressible;
+        return submit(() -> {
+            byte[] bytes = new byte[duplicate.remaining()];
+            duplicate.get(bytes);
+            return newCompressor(bytes, level, framed, store).compress();
+        });
+    }
+
+    /**
+     * Decompresses the {@code input} in the background.
+     * @param input the compressed bytes. They should not be changed until the future completes.
+     * @return a future that completes with the decompressed bytes. It fails with a
+     * {@link java.util.zip.DataFormatException} if the input is invalid, or with a {@link RejectedExecutionException}
+     * if the service is full or closed.
+     */
+    public CompletableFuture<byte[]> decompress(final byte[] input) {
+        return submit(() -> new Decompressor(input).decompress());
+    }
+
+    private static Compressor newCompressor(byte[] input, int compressionLevel, boolean framed, boolean storeIncompressible) {
+        Compressor compressor = new Compressor(input);
+        compressor.setCompressionLevel(compressionLevel);
+        compressor.setFramed(framed);
+        compressor.setStoreIncompressible(storeIncompressible);
+        return compressor;
+    }
+
+    private CompletableFuture<byte[]> submit(final Callable<byte[]> job) {
+        final CompletableFuture<byte[]> future = new CompletableFuture<>();
+        if (executor.isShutdown()) {
+            future.completeExceptionally(new RejectedExecutionException("The compression service is closed."));
+            return future;
+        }
+        if (!admitted.tryAcquire()) {
+            future.completeExceptionally(new RejectedExecutionException("The compression service is full."));
+            return future;
+        }
+        try {
+            executor.execute(() -> run(job, future));
+        } catch (RejectedExecutionException e) {
+            admitted.release();
+            future.completeExceptionally(e);
+        }
+        return future;
+    }
+
+    private void run(Callable<byte[]> job, CompletableFuture<byte[]> future) {
+        byte[] result = null;
+        Throwable error = null;
+        if (virtualThreads) {
+            running.acquireUninterruptibly();
+        }
+        try {
+            result = job.call();
+        } catch (Throwable t) {
+            error = t;
+        } finally {
+            if (virtualThreads) {
+                running.release();
+            }
+            // Free the slot before completing, so dependent stages can submit again right away
+            admitted.release();
+        }
+        if (error == null) {
+            future.complete(result);
+        } else {
+            future.completeExceptionally(error);
+        }
+    }
+
+    /**
+     * @return true if new jobs will be rejected because the queue is full
+     */
+    public boolean isSaturated() {
+        return admitted.availablePermits() == 0;
+    }
+
+    /**
+     * @return the amount of jobs that are running or waiting
+     */
+    public int getPendingCount() {
+        return capacity - admitted.availablePermits();
+    }
+
+    /**
+     * @return true if the jobs run on virtual threads
+     */
+    public boolean usesVirtualThreads() {
+        return virtualThreads;
+    }
+
+    // Settings //
+    /**
+     * @param level the compression level for the jobs submitted after this call, a value between 0 and 9
+     * @throws InvalidCompressionLevelException Thrown when the {@code level} is not between 0 and 9
+     * @see Compressor#setCompressionLevel(int)
+     */
+    public void setCompressionLevel(int level) {
+        Compressor.checkCompressionLevel(level);
+        this.compressionLevel = level;
+    }
+
+    /**
+     * @param framed whether the compressed output of the jobs submitted after this call is framed
+     * @see Compressor#setFramed(boolean)
+     */
+    public void setFramed(boolean framed) {
+        this.framed = framed;
+    }
+
+    /**
+     * @param store whether incompressible input of the jobs submitted after this call is returned as a stored frame
+     *              instead of failing the future
+     * @see Compressor#setStoreIncompressible(boolean)
+     */
+    public void setStoreIncompressible(boolean store) {
+        this.storeIncompressible = store;
+    }
+
+    /**
+     * Stops accepting jobs. Jobs that were accepted still complete.
+     */
+    @Override
+    public void close() {
+        executor.shutdown();
+    }
+
+    /**
+     * Waits until all accepted jobs completed after {@link #close()}.
+     * @param timeout the maximum time to wait
+     * @param unit the unit of the {@code timeout}
+     * @return true if all jobs completed, false if the timeout elapsed first
+     * @throws InterruptedException if interrupted while waiting
+     */
+    public boolean awaitTermination(long timeout, TimeUnit unit) throws InterruptedException {
+        return executor.awaitTermination(timeout, unit);
+    }
+}
@@ -1,9 +1,21 @@
 package be.jonaseveraert.util.compression;
 
-import be.jonaseveraert.util.arrays.ArrayUtils;
-import be.jonaseveraert.util.arrays.OutputArraySizeTooLargeException;
+import be.jonaseveraert.util.arrays.BufferPool;
+import be.jonaseveraert.util.arrays.ByteSlice;
 
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.Buffer;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.WritableByteChannel;
 import java.nio.charset.Charset;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.zip.Checksum;
 import java.util.zip.Deflater;
 
 /**
@@ -49,6 +61,11 @@ import java.util.zip.Deflater;
  *         }
  * }</pre>
  *
+ * <p>Large payloads that do not fit in memory can be compressed with the static streaming methods
+ * {@link #compress(InputStream, OutputStream, int)} and {@link #compress(ReadableByteChannel, WritableByteChannel, int)}.
+ * These only use two buffers of {@link #STREAM_BUFFER_SIZE} bytes, no matter how big the payload is. Files can be
+ * compressed without copying them to the heap with {@link #compressFile(Path, Path, int)}.</p>
+ *
  * @author Jonas Everaert
  * @author <a href="https://jonaseveraert.be">jonaseveraert.be</a>
  * @since 1.0
@@ -59,6 +76,10 @@ public class Compressor {
      */
     private final byte[] input;
     private int compressionLevel = 9;
+    private boolean framed = false;
+    private CompressibilityEstimator compressibilityEstimator = null;
+    private boolean storeIncompressible = false;
+    private CompressionDictionary dictionary = null;
 
     /**
      * The {@code Compressor} can be used to compress bytes with the ZLIB format. This is a lossless compression format.
@@ -79,34 +100,186 @@ public class Compressor {
 
     /**
      * Compresses the {@link #input byte array} using the {@link Deflater Deflater} class, with the {@link #compressionLevel compression level}
-     * that can be set with the {@link #setCompressionLevel(int) setCompressionLevel(int)} method
+     * that can be set with the {@link #setCompressionLevel(int) setCompressionLevel(int)} method.
+     * The {@code Deflater} is borrowed from the {@link DeflaterPool#getShared() shared DeflaterPool}.
      * @return A compressed byte array based on the {@link #input input byte array}
      * @throws ByteArrayCannotBeCompressedException Thrown when the output size of the compression is equal to, or bigger
-     * than the input length.<p>When this exception is thrown, you should therefore use the input instead of the compressed
-     * form in the code that follows this method.</p>
+     * than the input length, or when the {@link #setCompressibilityCheck(boolean) compressibility check} rejects the
+     * input.<p>When this exception is thrown, you should therefore use the input instead of the compressed
+     * form in the code that follows this method.</p> It is never thrown when
+     * {@link #setStoreIncompressible(boolean) storeIncompressible} is enabled.
      */
     public byte[] compress() throws ByteArrayCannotBeCompressedException {
-        Deflater compressor = new Deflater(this.compressionLevel);
-        compressor.setInput(this.input);
-        compressor.finish();
+        long start = CompressionInstrumentation.start();
+        ByteSlice compressed = deflateInput();
+        byte[] output = compressed != null ? compressed.toByteArray() : reject();
+        CompressionInstrumentation.compressed(this.compressionLevel, this.input.length, output.length, start);
+        return output;
+    }
+
+    /**
+     * Does the same as {@link #compress()}, but does not copy the compressed data into an array of its exact size.
+     * <p>The slice is a view of the buffer the data was compressed into, which is a little bigger than the input. Use
+     * this when the compressed data is only written onward (e.g. with {@link ByteSlice#writeTo(OutputStream)}) and not
+     * kept around.</p>
+     * @return the compressed input
+     * @throws ByteArrayCannotBeCompressedException see {@link #compress()}
+     * @since 1.2
+     */
+    public ByteSlice compressToSlice() throws ByteArrayCannotBeCompressedException {
+        long start = CompressionInstrumentation.start();
+        ByteSlice output = deflateInput();
+        if (output == null) {
+            output = ByteSlice.wrap(reject());
+        }
+        CompressionInstrumentation.compressed(this.compressionLevel, this.input.length, output.length(), start);
+        return output;
+    }
 
-        byte[] compressedInput = new byte[this.input.length + 1];
+    /**
+     * @return the compressed input, or null if compressing does not make the input smaller
+     */
+    private ByteSlice deflateInput() {
+        if (this.compressibilityEstimator != null && !this.compressibilityEstimator.isCompressible(this.input)) {
+            return null;
+        }
 
-        int compressedLength = compressor.deflate(compressedInput);
+        Deflater compressor = DeflaterPool.getShared().acquire(this.compressionLevel);
+        try {
+            if (this.dictionary != null) {
+                compressor.setDictionary(this.dictionary.bytes());
+            }
 
-        if (compressedLength >= this.input.length) {
-            // There are not enough returning characters in the input that the compressed version is either bigger or the same size.
-            throw new ByteArrayCannotBeCompressedException("The file could not be compressed; the compressed length is bigger than the input length.");
+            int flags = this.dictionary != null ? Frame.FLAG_DICTIONARY : 0;
+            int offset = this.framed ? Frame.headerLength(flags) : 0;
+            byte[] compressedInput = new byte[Math.max(this.input.length, offset) + 1];
+            int compressedLength = offset;
+
+            // A frame needs a checksum. The input is fed to the deflater a chunk at a time and each chunk is checksummed
+            // right before, so that the input is only read from memory once.
+            Checksum checksum = this.framed ? Crc32c.create() : null;
+            int position = 0;
+            if (checksum == null) {
+                compressor.setInput(this.input);
+                compressor.finish();
+                position = this.input.length;
+            }
+            do {
+                if (compressor.needsInput() && position < this.input.length) {
+                    int length = Math.min(Crc32c.CHUNK_SIZE, this.input.length - position);
+                    checksum.update(this.input, position, length);
+                    compressor.setInput(this.input, position, length);
+                    position += length;
+                } else if (compressor.needsInput() && !compressor.finished()) {
+                    compressor.finish();
+                }
+                compressedLength += compressor.deflate(compressedInput, compressedLength, compressedInput.length - compressedLength);
+
+                if (compressedLength >= this.input.length) {
+                    // There are not enough returning characters in the input that the compressed version is either bigger or the same size.
+                    return null;
+                }
+            } while (!compressor.finished());
+
+            if (this.framed) {
+                Frame.writeHeader(compressedInput, flags, this.input.length, (int) checksum.getValue(), this.dictionary != null ? this.dictionary.getId() : 0);
+            }
+
+            return ByteSlice.wrap(compressedInput, 0, compressedLength); // Only the part of the array that has data
+        } finally {
+            DeflaterPool.getShared().release(compressor);
         }
+    }
 
-        compressor.end();
+    /**
+     * Called when the input will not be compressed.
+     * @see #store()
+     */
+    private byte[] reject() throws ByteArrayCannotBeCompressedException {
+        CompressionInstrumentation.rejected(this.compressionLevel, this.input.length);
+        return store();
+    }
 
-        try {
-            return ArrayUtils.partArray(compressedInput, compressedLength); // Only return the part of the array that has data
-        } catch (OutputArraySizeTooLargeException e) {
-            e.printStackTrace();
-            throw new UnknownError();
+    /**
+     * Called when the input will not be compressed.
+     * @return a stored frame if {@link #storeIncompressible} is enabled
+     * @throws ByteArrayCannotBeCompressedException otherwise
+     */
+    private byte[] store() throws ByteArrayCannotBeCompressedException {
+        if (!this.storeIncompressible) {
+            throw new ByteArrayCannotBeCompressedException("The file could not be compressed; the compressed length is bigger than the input length.");
         }
+        byte[] stored = new byte[Frame.HEADER_LENGTH + this.input.length];
+        Checksum checksum = Crc32c.create();
+        for (int position = 0; position < this.input.length; position += Crc32c.CHUNK_SIZE) {
+            int length = Math.min(Crc32c.CHUNK_SIZE, this.input.length - position);
+            checksum.update(this.input, position, length);
+            System.arraycopy(this.input, position, stored, Frame.HEADER_LENGTH + position, length);
+        }
+        Frame.writeHeader(stored, Frame.FLAG_STORED, this.input.length, (int) checksum.getValue(), 0);
+        return stored;
+    }
+
+    /**
+     * <p>Compresses the input with a preset dictionary. This greatly improves the compression of small messages that
+     * have a lot in common with the dictionary. See the {@link DictionaryTrainer} for a code example.</p>
+     * <p>The output can only be decompressed by a {@link Decompressor} that knows the same dictionary. When
+     * {@link #setFramed(boolean) framing} is enabled, the id of the dictionary is also recorded in the frame.</p>
+     * @param dictionary the dictionary, or null to compress without a dictionary
+     * @since 1.2
+     */
+    public void setDictionary(CompressionDictionary dictionary) {
+        this.dictionary = dictionary;
+    }
+
+    /**
+     * <p>When the compressibility check is enabled, {@link #compress()} first samples the input with a
+     * {@link CompressibilityEstimator}. Input that looks incompressible (e.g. media that is already compressed) is not
+     * deflated at all, so no CPU is spent on it: {@code compress()} immediately throws a
+     * {@link ByteArrayCannotBeCompressedException}, or returns a stored frame if
+     * {@link #setStoreIncompressible(boolean) storeIncompressible} is enabled.</p>
+     * <p>The check is disabled by default.</p>
+     * @param check true to enable the compressibility check with a default {@code CompressibilityEstimator}
+     * @since 1.2
+     */
+    public void setCompressibilityCheck(boolean check) {
+        this.compressibilityEstimator = check ? new CompressibilityEstimator() : null;
+    }
+
+    /**
+     * Enables the compressibility check with the given estimator.
+     * @param estimator the estimator to use, or null to disable the check
+     * @see #setCompressibilityCheck(boolean)
+     * @since 1.2
+     */
+    public void setCompressibilityEstimator(CompressibilityEstimator estimator) {
+        this.compressibilityEstimator = estimator;
+    }
+
+    /**
+     * <p>When enabled, {@link #compress()} never throws a {@link ByteArrayCannotBeCompressedException}. Instead it
+     * returns a frame that is marked as stored and contains the uncompressed input. The {@link Decompressor} returns
+     * the input again for these frames.</p>
+     * <p>A stored frame is 11 bytes longer than the input. It is returned even if
+     * {@link #setFramed(boolean) framing} is disabled, because the frame header is the marker. Disabled by default.</p>
+     * @param store true to return stored frames for incompressible input
+     * @since 1.2
+     */
+    public void setStoreIncompressible(boolean store) {
+        this.storeIncompressible = store;
+    }
+
+    /**
+     * <p>When framing is enabled, {@link #compress()} puts a small header in front of the ZLIB data that records the
+     * length and a CRC32C checksum of the uncompressed data. The {@link Decompressor} recognizes this header, so that it
+     * can allocate the output array exactly once and verify the decompressed data. The checksum is computed while the
+     * input is deflated and verified while the data is inflated, so neither side needs an extra pass over the data.</p>
+     * <p>Framed data can only be decompressed with {@link Decompressor#decompress()}. Framing is disabled by default.</p>
+     * @param framed true to enable framing
+     * @since 1.2
+     */
+    public void setFramed(boolean framed) {
+        this.framed = framed;
     }
 
     public static final int MAX_COMPRESSION = 9;
@@ -118,10 +291,293 @@ public class Compressor {
      * @throws InvalidCompressionLevelException Thrown when the {@code level} is not between 0 and 9
      */
     public void setCompressionLevel(int level) {
+        checkCompressionLevel(level);
+        this.compressionLevel = level;
+    }
+
+    // ByteBuffers //
+    /**
+     * Compresses all remaining bytes of {@code src} with the ZLIB format into {@code dst}.
+     * <p>On Java 11 and later, the {@code ByteBuffer} entry points of the {@link Deflater} are used, so that data in
+     * direct buffers stays off-heap. Heap buffers are always passed through their backing arrays without copying.</p>
+     * <p>The position of {@code src} is advanced to its limit and the position of {@code dst} past the compressed data.
+     * The output can be decompressed with {@link Decompressor#decompress(ByteBuffer, ByteBuffer)}.</p>
+     * @param src the bytes that will be compressed
+     * @param dst the buffer the compressed data is written to
+     * @param compressionLevel the compression level, a value between 0 and 9
+     * @return the amount of compressed bytes written to {@code dst}
+     * @throws java.nio.BufferOverflowException if {@code dst} does not have enough room for the compressed data. The
+     * positions of both buffers are undefined when this is thrown.
+     * @throws InvalidCompressionLevelException Thrown when the {@code compressionLevel} is not between 0 and 9
+     * @since 1.2
+     */
+    public static int compress(ByteBuffer src, ByteBuffer dst, int compressionLevel) {
+        checkCompressionLevel(compressionLevel);
+        long start = CompressionInstrumentation.start();
+        int bytesIn = src.remaining();
+        Deflater compressor = DeflaterPool.getShared().acquire(compressionLevel);
+        try {
+            int written = NioZlib.deflate(compressor, src, dst);
+            CompressionInstrumentation.compressed(compressionLevel, bytesIn, written, start);
+            return written;
+        } finally {
+            DeflaterPool.getShared().release(compressor);
+        }
+    }
+
+    /**
+     * Compresses all remaining bytes of {@code src} with the ZLIB format into {@code dst}, using the
+     * {@link #MAX_COMPRESSION maximum compression level}.
+     * @param src the bytes that will be compressed
+     * @param dst the buffer the compressed data is written to
+     * @return the amount of compressed bytes written to {@code dst}
+     * @throws java.nio.BufferOverflowException if {@code dst} does not have enough room for the compressed data
+     * @see #compress(ByteBuffer, ByteBuffer, int)
+     * @since 1.2
+     */
+    public static int compress(ByteBuffer src, ByteBuffer dst) {
+        return compress(src, dst, MAX_COMPRESSION);
+    }
+
+    // Streaming //
+    /**
+     * The size in bytes of the input and output buffers used by the streaming methods.
+     * @since 1.2
+     */
+    public static final int STREAM_BUFFER_SIZE = 64 * 1024;
+
+    /**
+     * Compresses everything that can be read from {@code in} with the ZLIB format and writes it to {@code out}.
+     * <p>The memory used is bounded by {@link #STREAM_BUFFER_SIZE}, so this can be used for payloads of any size.
+     * Unlike {@link #compress()}, this method never throws a {@link ByteArrayCannotBeCompressedException}; the output
+     * can be bigger than the input when the data is not compressible. Neither of the streams is closed.</p>
+     * <p>The output can be decompressed with {@link Decompressor#decompress(InputStream, OutputStream)}.</p>
+     * @param in the stream that will be read until its end
+     * @param out the stream the compressed data will be written to
+     * @param compressionLevel the compression level, a value between 0 and 9
+     * @return the amount of compressed bytes written to {@code out}
+     * @throws IOException if an I/O exception occurs
+     * @throws InvalidCompressionLevelException Thrown when the {@code compressionLevel} is not between 0 and 9
+     * @since 1.2
+     */
+    public static long compress(InputStream in, OutputStream out, int compressionLevel) throws IOException {
+        checkCompressionLevel(compressionLevel);
+        long start = CompressionInstrumentation.start();
+        Deflater compressor = DeflaterPool.getShared().acquire(compressionLevel);
+        byte[] inputBuffer = BufferPool.getShared().acquire(STREAM_BUFFER_SIZE);
+        byte[] outputBuffer = BufferPool.getShared().acquire(STREAM_BUFFER_SIZE);
+        try {
+            long written = 0;
+            long totalRead = 0;
+
+            int read;
+            while ((read = in.read(inputBuffer)) != -1) {
+                if (read == 0) continue;
+                totalRead += read;
+                compressor.setInput(inputBuffer, 0, read);
+                while (!compressor.needsInput()) {
+                    int compressedLength = compressor.deflate(outputBuffer);
+                    out.write(outputBuffer, 0, compressedLength);
+                    written += compressedLength;
+                }
+            }
+
+            compressor.finish();
+            while (!compressor.finished()) {
+                int compressedLength = compressor.deflate(outputBuffer);
+                out.write(outputBuffer, 0, compressedLength);
+                written += compressedLength;
+            }
+            out.flush();
+            CompressionInstrumentation.compressed(compressionLevel, totalRead, written, start);
+            return written;
+        } finally {
+            BufferPool.getShared().release(inputBuffer);
+            BufferPool.getShared().release(outputBuffer);
+            DeflaterPool.getShared().release(compressor);
+        }
+    }
+
+    /**
+     * Compresses everything that can be read from {@code in} with the ZLIB format and writes it to {@code out}, using the
+     * {@link #MAX_COMPRESSION maximum compression level}.
+     * @param in the stream that will be read until its end
+     * @param out the stream the compressed data will be written to
+     * @return the amount of compressed bytes written to {@code out}
+     * @throws IOException if an I/O exception occurs
+     * @see #compress(InputStream, OutputStream, int)
+     * @since 1.2
+     */
+    public static long compress(InputStream in, OutputStream out) throws IOException {
+        return compress(in, out, MAX_COMPRESSION);
+    }
+
+    /**
+     * Compresses everything that can be read from the {@code in} channel with the ZLIB format and writes it to the
+     * {@code out} channel.
+     * <p>The memory used is bounded by {@link #STREAM_BUFFER_SIZE}, so this can be used for payloads of any size.
+     * Neither of the channels is closed.</p>
+     * <p>The output can be decompressed with {@link Decompressor#decompress(ReadableByteChannel, WritableByteChannel)}.</p>
+     * @param in the channel that will be read until its end
+     * @param out the channel the compressed data will be written to
+     * @param compressionLevel the compression level, a value between 0 and 9
+     * @return the amount of compressed bytes written to {@code out}
+     * @throws IOException if an I/O exception occurs
+     * @throws InvalidCompressionLevelException Thrown when the {@code compressionLevel} is not between 0 and 9
+     * @since 1.2
+     */
+    public static long compress(ReadableByteChannel in, WritableByteChannel out, int compressionLevel) throws IOException {
+        checkCompressionLevel(compressionLevel);
+        long start = CompressionInstrumentation.start();
+        Deflater compressor = DeflaterPool.getShared().acquire(compressionLevel);
+        byte[] inputArray = BufferPool.getShared().acquire(STREAM_BUFFER_SIZE);
+        byte[] outputArray = BufferPool.getShared().acquire(STREAM_BUFFER_SIZE);
+        try {
+            ByteBuffer inputBuffer = ByteBuffer.wrap(inputArray);
+            ByteBuffer outputBuffer = ByteBuffer.wrap(outputArray);
+            long written = 0;
+            long totalRead = 0;
+
+            while (in.read(inputBuffer) != -1) {
+                if (inputBuffer.position() == 0) continue;
+                totalRead += inputBuffer.position();
+                compressor.setInput(inputBuffer.array(), 0, inputBuffer.position());
+                while (!compressor.needsInput()) {
+                    written += deflateToChannel(compressor, outputBuffer, out);
+                }
+                ((Buffer) inputBuffer).clear();
+            }
+
+            compressor.finish();
+            while (!compressor.finished()) {
+                written += deflateToChannel(compressor, outputBuffer, out);
+            }
+            CompressionInstrumentation.compressed(compressionLevel, totalRead, written, start);
+            return written;
+        } finally {
+            BufferPool.getShared().release(inputArray);
+            BufferPool.getShared().release(outputArray);
+            DeflaterPool.getShared().release(compressor);
+        }
+    }
+
+    /**
+     * Compresses everything that can be read from the {@code in} channel with the ZLIB format and writes it to the
+     * {@code out} channel, using the {@link #MAX_COMPRESSION maximum compression level}.
+     * @param in the channel that will be read until its end
+     * @param out the channel the compressed data will be written to
+     * @return the amount of compressed bytes written to {@code out}
+     * @throws IOException if an I/O exception occurs
+     * @see #compress(ReadableByteChannel, WritableByteChannel, int)
+     * @since 1.2
+     */
+    public static long compress(ReadableByteChannel in, WritableByteChannel out) throws IOException {
+        return compress(in, out, MAX_COMPRESSION);
+    }
+
+    // Files //
+    /**
+     * The amount of bytes of a file that is mapped into memory at once by {@link #compressFile(Path, Path, int)} and
+     * {@link Decompressor#decompressFile(Path, Path)}.
+     * @since 1.2
+     */
+    public static final long FILE_MAP_WINDOW_SIZE = 64L * 1024 * 1024;
+
+    /**
+     * Compresses the file {@code in} with the ZLIB format and writes the result to the file {@code out}.
+     * <p>The input file is memory-mapped a window of {@link #FILE_MAP_WINDOW_SIZE} bytes at a time and the output is
+     * written through a buffer of {@link #STREAM_BUFFER_SIZE} bytes, so files of any size can be compressed without
+     * reading them into a {@code byte[]}. On Java 11 and later the mapped input and a direct output buffer are handed
+     * to the {@link Deflater} as they are, so the data never gets copied to the heap.</p>
+     * <p>The output file is created, or truncated if it exists. It contains the same data as
+     * {@link #compress(InputStream, OutputStream, int)} would write and can be decompressed with
+     * {@link Decompressor#decompressFile(Path, Path)} or any of the streaming methods of the {@link Decompressor}.</p>
+     * @param in the file that will be compressed
+     * @param out the file the compressed data will be written to
+     * @param compressionLevel the compression level, a value between 0 and 9
+     * @return the amount of compressed bytes written to {@code out}
+     * @throws IOException if an I/O exception occurs
+     * @throws InvalidCompressionLevelException Thrown when the {@code compressionLevel} is not between 0 and 9
+     * @since 1.2
+     */
+    public static long compressFile(Path in, Path out, int compressionLevel) throws IOException {
+        checkCompressionLevel(compressionLevel);
+        long start = CompressionInstrumentation.start();
+        Deflater compressor = DeflaterPool.getShared().acquire(compressionLevel);
+        ByteBuffer outputBuffer = NioZlib.acquire(STREAM_BUFFER_SIZE);
+        byte[] scratch = NioZlib.hasByteBufferEntryPoints() ? null : BufferPool.getShared().acquire(STREAM_BUFFER_SIZE);
+        try (FileChannel input = FileChannel.open(in, StandardOpenOption.READ);
+             FileChannel output = FileChannel.open(out, StandardOpenOption.WRITE, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            long size = input.size();
+            long written = 0;
+
+            for (long position = 0; position < size; position += FILE_MAP_WINDOW_SIZE) {
+                MappedByteBuffer window = input.map(FileChannel.MapMode.READ_ONLY, position, Math.min(FILE_MAP_WINDOW_SIZE, size - position));
+                while (window.hasRemaining() || !compressor.needsInput()) {
+                    if (compressor.needsInput()) {
+                        NioZlib.setInput(compressor, window, scratch);
+                    }
+                    written += deflateToFile(compressor, outputBuffer, output);
+                }
+            }
+
+            compressor.finish();
+            while (!compressor.finished()) {
+                written += deflateToFile(compressor, outputBuffer, output);
+            }
+            CompressionInstrumentation.compressed(compressionLevel, size, written, start);
+            return written;
+        } finally {
+            NioZlib.release(outputBuffer);
+            BufferPool.getShared().release(scratch);
+            DeflaterPool.getShared().release(compressor);
+        }
+    }
+
+    /**
+     * Compresses the file {@code in} with the ZLIB format and writes the result to the file {@code out}, using the
+     * {@link #MAX_COMPRESSION maximum compression level}.
+     * @param in the file that will be compressed
+     * @param out the file the compressed data will be written to
+     * @return the amount of compressed bytes written to {@code out}
+     * @throws IOException if an I/O exception occurs
+     * @see #compressFile(Path, Path, int)
+     * @since 1.2
+     */
+    public static long compressFile(Path in, Path out) throws IOException {
+        return compressFile(in, out, MAX_COMPRESSION);
+    }
+
+    private static int deflateToFile(Deflater compressor, ByteBuffer outputBuffer, FileChannel out) throws IOException {
+        ((Buffer) outputBuffer).clear();
+        int compressedLength = NioZlib.deflateStep(compressor, outputBuffer);
+        ((Buffer) outputBuffer).flip();
+        while (outputBuffer.hasRemaining()) {
+            out.write(outputBuffer);
+        }
+        return compressedLength;
+    }
+
+    /**
+     * Deflates once into the (heap) {@code outputBuffer} and writes everything that was produced to the channel.
+     * @return the amount of bytes written
+     */
+    private static int deflateToChannel(Deflater compressor, ByteBuffer outputBuffer, WritableByteChannel out) throws IOException {
+        ((Buffer) outputBuffer).clear();
+        int compressedLength = compressor.deflate(outputBuffer.array());
+        ((Buffer) outputBuffer).limit(compressedLength);
+        while (outputBuffer.hasRemaining()) {
+            out.write(outputBuffer);
+        }
+        return compressedLength;
+    }
+
+    /**
+     * @throws InvalidCompressionLevelException if the {@code level} is not between 0 and 9
+     */
+    static void checkCompressionLevel(int level) {
         if (level < 0 || level > 9) {
-            throw new InvalidCompressionLevelException("The be.jonaseveraert.util.compression level could not be set, because the given level is not between 0 and 9.");
-        } else {
-            this.compressionLevel = level;
+            throw new InvalidCompressionLevelException("The compression level could not be set, because the given level is not between 0 and 9.");
         }
     }
 }
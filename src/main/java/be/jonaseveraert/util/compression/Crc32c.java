@@ -0,0 +1,98 @@
+package be.jonaseveraert.util.compression;
+
+import java.lang.reflect.Constructor;
+import java.util.zip.Checksum;
+
+/**
+ * <p>The CRC32C (Castagnoli) checksum that {@link Frame frames} use.</p>
+ * <p>On Java 9 and later {@link #create()} returns {@code java.util.zip.CRC32C}, which the JIT replaces with the
+ * CRC32 instructions of the CPU (SSE 4.2 on x86, the CRC extension on ARMv8). On older versions this class computes the
+ * same value with lookup tables, eight bytes at a time.</p>
+ * @since 1.2
+ */
+final class Crc32c implements Checksum {
+    /**
+     * The amount of bytes that is checksummed at once while deflating or inflating, so that the checksum reads data
+     * that is still in the CPU cache
+     */
+    static final int CHUNK_SIZE = 32 * 1024;
+
+    // Reversed Castagnoli polynomial
+    private static final int POLYNOMIAL = 0x82F63B78;
+    private static final int[][] TABLES = new int[8][256];
+    // null when running on Java 8
+    private static final Constructor<? extends Checksum> JDK_CRC32C;
+
+    static {
+        for (int i = 0; i < 256; i++) {
+            int crc = i;
+            for (int bit = 0; bit < 8; bit++) {
+                crc = (crc & 1) != 0 ? (crc >>> 1) ^ POLYNOMIAL : crc >>> 1;
+            }
+            TABLES[0][i] = crc;
+        }
+        for (int i = 0; i < 256; i++) {
+            for (int table = 1; table < 8; table++) {
+                int previous = TABLES[table - 1][i];
+                TABLES[table][i] = (previous >>> 8) ^ TABLES[0][previous & 0xFF];
+            }
+        }
+
+        Constructor<? extends Checksum> constructor;
+        try {
+            constructor = Class.forName("java.util.zip.CRC32C").asSubclass(Checksum.class).getConstructor();
+        } catch (ReflectiveOperationException | RuntimeException e) {
+            constructor = null;
+        }
+        JDK_CRC32C = constructor;
+    }
+
+    private int crc = 0xFFFFFFFF;
+
+    /**
+     * @return the CRC32C implementation of the JDK when available, otherwise an instance of this class
+     */
+    static Checksum create() {
+        if (JDK_CRC32C != null) {
+            try {
+                return JDK_CRC32C.newInstance();
+            } catch (ReflectiveOperationException e) {
+                // Fall through to the table implementation
+            }
+        }
+        return new Crc32c();
+    }
+
+    @Override
+    public void update(int b) {
+        crc = (crc >>> 8) ^ TABLES[0][(crc ^ b) & 0xFF];
+    }
+
+    @Override
+    public void update(byte[] b, int off, int len) {
+        int crc = this.crc;
+        int end = off + len;
+        int[] t0 = TABLES[0], t1 = TABLES[1], t2 = TABLES[2], t3 = TABLES[3];
+        int[] t4 = TABLES[4], t5 = TABLES[5], t6 = TABLES[6], t7 = TABLES[7];
+        while (end - off >= 8) {
+            int low = crc ^ ((b[off] & 0xFF) | (b[off + 1] & 0xFF) << 8 | (b[off + 2] & 0xFF) << 16 | (b[off + 3] & 0xFF) << 24);
+            crc = t7[low & 0xFF] ^ t6[(low >>> 8) & 0xFF] ^ t5[(low >>> 16) & 0xFF] ^ t4[low >>> 24]
+                    ^ t3[b[off + 4] & 0xFF] ^ t2[b[off + 5] & 0xFF] ^ t1[b[off + 6] & 0xFF] ^ t0[b[off + 7] & 0xFF];
+            off += 8;
+        }
+        while (off < end) {
+            crc = (crc >>> 8) ^ t0[(crc ^ b[off++]) & 0xFF];
+        }
+        this.crc = crc;
+    }
+
+    @Override
+    public long getValue() {
+        return ~crc & 0xFFFFFFFFL;
+    }
+
+    @Override
+    public void reset() {
+        crc = 0xFFFFFFFF;
+    }
+}
@@ -1,16 +1,37 @@
 package be.jonaseveraert.util.compression;
 
-import be.jonaseveraert.util.arrays.OutputArraySizeTooLargeException;
+import be.jonaseveraert.util.arrays.BufferPool;
+import be.jonaseveraert.util.arrays.ByteSlice;
 
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.PushbackInputStream;
+import java.nio.Buffer;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.SeekableByteChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.zip.Checksum;
 import java.util.zip.DataFormatException;
 import java.util.zip.Inflater;
 
-import static be.jonaseveraert.util.arrays.ArrayUtils.partArray;
-
 /**
  * A class that decompresses a compressed byte array that was compressed using the popular ZLIB be.jonaseveraert.util.compression library.
  * <p>
  * For a code example, see the {@link Compressor Compressor class}</p>
+ * <p>Streams that were compressed with the streaming methods of the {@link Compressor} can be decompressed with
+ * {@link #decompress(InputStream, OutputStream)} and {@link #decompress(ReadableByteChannel, WritableByteChannel)}.
+ * These methods have no maximum output size and only use buffers of {@link Compressor#STREAM_BUFFER_SIZE} bytes.
+ * Files written by {@link Compressor#compressFile(Path, Path)} can be decompressed with
+ * {@link #decompressFile(Path, Path)}.</p>
  *
  * @author Jonas Everaert
  * @author https://jonaseveraert.be
@@ -19,9 +40,18 @@ import static be.jonaseveraert.util.arrays.ArrayUtils.partArray;
 public class Decompressor {
     private final byte[] input;
     /**
-     * The maximum size the outputted byte array can be
+     * The initial size of the outputted byte array for unframed data
      */
     private int MAX_OUTPUT_SIZE = 1000;
+    /**
+     * The dictionaries that can be used to decompress the input, by id
+     */
+    private final Map<Integer, CompressionDictionary> dictionaries = new HashMap<>();
+    /**
+     * Deflate cannot expand data more than about 1032 times: a match of 258 bytes takes at least 2 bits. A frame that
+     * records a longer uncompressed length is corrupt, so its header is not trusted to decide the allocation.
+     */
+    private static final int MAX_DEFLATE_RATIO = 1032;
 
     /**
      * Decompresses bytes.
@@ -32,31 +62,374 @@ public class Decompressor {
     }
 
     /**
-     * Decompresses the given {@link #input input} (a compressed array of bytes)
+     * Decompresses the given {@link #input input} (a compressed array of bytes). The {@code Inflater} is borrowed from
+     * the {@link InflaterPool#getShared() shared InflaterPool}.
+     * <p>If the input was compressed by a {@link Compressor#setFramed(boolean) framed} {@link Compressor}, the output is
+     * allocated once with its exact size and its checksum is verified. A frame that records a longer length than deflate
+     * can produce from its data is rejected before allocating. {@link Compressor#setStoreIncompressible(boolean)
+     * Stored} frames are returned without inflating. Otherwise, the output starts with the
+     * {@link #setMaxOutputSize(int) maximum output size} and grows until all data is decompressed.</p>
      * @return the decompressed data in byte array form.
-     * @throws DataFormatException if the compressed data format is invalid.
+     * @throws DataFormatException if the compressed data format is invalid, if the compressed data is incomplete or if
+     * the checksum of framed data does not match.
      */
     public byte[] decompress() throws DataFormatException {
-        Inflater decompressor = new Inflater();
-        decompressor.setInput(input);
-        byte[] output = new byte[MAX_OUTPUT_SIZE];
-        int uncompressedLength = decompressor.inflate(output);
-        decompressor.end();
+        long start = CompressionInstrumentation.start();
+        byte[] output = Frame.isFramed(input) ? decompressFrame(Frame.read(input)) : inflateInput().toByteArray();
+        CompressionInstrumentation.decompressed(input.length, output.length, start);
+        return output;
+    }
+
+    /**
+     * Does the same as {@link #decompress()}, but does not copy unframed data into an array of its exact size.
+     * <p>Unframed data is decompressed into a growing buffer; the slice is a view of that buffer. Framed data always
+     * ends up in an array of the exact size, so the slice contains the whole array.</p>
+     * @return the decompressed data
+     * @throws DataFormatException see {@link #decompress()}
+     * @since 1.2
+     */
+    public ByteSlice decompressToSlice() throws DataFormatException {
+        long start = CompressionInstrumentation.start();
+        ByteSlice output = Frame.isFramed(input) ? ByteSlice.wrap(decompressFrame(Frame.read(input))) : inflateInput();
+        CompressionInstrumentation.decompressed(input.length, output.length(), start);
+        return output;
+    }
+
+    /**
+     * Decompresses unframed input into a growing array.
+     */
+    private ByteSlice inflateInput() throws DataFormatException {
+        Inflater decompressor = InflaterPool.getShared().acquire();
+        byte[] output = new byte[Math.max(MAX_OUTPUT_SIZE, 1)];
+        int uncompressedLength = 0;
+        try {
+            decompressor.setInput(input);
+            while (!decompressor.finished()) {
+                if (uncompressedLength == output.length) {
+                    output = Arrays.copyOf(output, growCapacity(output.length));
+                }
+                int inflated = decompressor.inflate(output, uncompressedLength, output.length - uncompressedLength);
+                uncompressedLength += inflated;
+                if (inflated == 0 && decompressor.needsDictionary()) {
+                    setDictionary(decompressor);
+                } else if (inflated == 0 && decompressor.needsInput() && !decompressor.finished()) {
+                    throw new DataFormatException("The compressed data is incomplete.");
+                }
+            }
+        } finally {
+            InflaterPool.getShared().release(decompressor);
+        }
+
+        return ByteSlice.wrap(output, 0, uncompressedLength);
+    }
 
+    /**
+     * Decompresses framed data into an array of exactly the uncompressed length and verifies the checksum.
+     */
+    private byte[] decompressFrame(Frame frame) throws DataFormatException {
+        byte[] output;
+        Checksum checksum = Crc32c.create();
+        if (frame.isStored()) {
+            if (input.length - frame.dataOffset != frame.uncompressedLength) {
+                throw new DataFormatException("The length of the stored data does not match the length recorded in the frame.");
+            }
+            output = new byte[frame.uncompressedLength];
+            for (int position = 0; position < output.length; position += Crc32c.CHUNK_SIZE) {
+                int length = Math.min(Crc32c.CHUNK_SIZE, output.length - position);
+                System.arraycopy(input, frame.dataOffset + position, output, position, length);
+                checksum.update(output, position, length);
+            }
+        } else {
+            output = inflateFrame(frame, checksum);
+        }
+
+        if ((int) checksum.getValue() != frame.checksum) {
+            throw new DataFormatException("The checksum of the decompressed data does not match the checksum recorded in the frame.");
+        }
+        return output;
+    }
+
+    /**
+     * Inflates a chunk at a time and checksums every chunk right after it was inflated, while it is still in the CPU
+     * cache, so that the output is not read from memory a second time.
+     */
+    private byte[] inflateFrame(Frame frame, Checksum checksum) throws DataFormatException {
+        if (frame.hasDictionary() && !dictionaries.containsKey(frame.dictionaryId)) {
+            throw new DataFormatException("The data was compressed with a dictionary (id " + frame.dictionaryId + ") that was not added to the Decompressor.");
+        }
+        int compressedLength = input.length - frame.dataOffset;
+        int declaredLength = frame.uncompressedLength;
+        if (declaredLength > (long) compressedLength * MAX_DEFLATE_RATIO) {
+            throw new DataFormatException("The length recorded in the frame is longer than the compressed data can hold.");
+        }
+        byte[] output = new byte[declaredLength];
+        Inflater decompressor = InflaterPool.getShared().acquire();
         try {
-            return partArray(output, uncompressedLength);
-        } catch (OutputArraySizeTooLargeException e) {
-            e.printStackTrace();
-            throw new UnknownError();
+            decompressor.setInput(input, frame.dataOffset, compressedLength);
+            int uncompressedLength = 0;
+            while (uncompressedLength < declaredLength) {
+                int inflated = decompressor.inflate(output, uncompressedLength, Math.min(Crc32c.CHUNK_SIZE, output.length - uncompressedLength));
+                if (inflated == 0 && decompressor.needsDictionary()) {
+                    setDictionary(decompressor);
+                } else if (inflated == 0 && (decompressor.finished() || decompressor.needsInput())) {
+                    break;
+                }
+                checksum.update(output, uncompressedLength, inflated);
+                uncompressedLength += inflated;
+            }
+            // Inflate once more to consume the ZLIB trailer
+            if (!decompressor.finished() && decompressor.inflate(new byte[1]) != 0) {
+                throw new DataFormatException("The compressed data is longer than the length recorded in the frame.");
+            }
+            if (uncompressedLength != declaredLength || !decompressor.finished()) {
+                throw new DataFormatException("The decompressed length does not match the length recorded in the frame.");
+            }
+        } finally {
+            InflaterPool.getShared().release(decompressor);
+        }
+        return output;
+    }
+
+    /**
+     * Gives the inflater the dictionary it asks for.
+     * @throws DataFormatException if the dictionary was not added
+     */
+    private void setDictionary(Inflater decompressor) throws DataFormatException {
+        int id = decompressor.getAdler();
+        CompressionDictionary dictionary = dictionaries.get(id);
+        if (dictionary == null) {
+            throw new DataFormatException("The data was compressed with a dictionary (id " + id + ") that was not added to the Decompressor.");
+        }
+        decompressor.setDictionary(dictionary.bytes());
+    }
+
+    /**
+     * Makes a dictionary available to {@link #decompress()}. Several dictionaries can be added; the right one is chosen
+     * by the id that the compressed data refers to.
+     * @param dictionary a dictionary that was used to compress data with {@link Compressor#setDictionary(CompressionDictionary)}
+     * @since 1.2
+     */
+    public void addDictionary(CompressionDictionary dictionary) {
+        dictionaries.put(dictionary.getId(), dictionary);
+    }
+
+    /**
+     * @return the new capacity of a growing output array
+     */
+    private static int growCapacity(int capacity) {
+        if (capacity >= Integer.MAX_VALUE - 8) {
+            throw new OutOfMemoryError("The decompressed data does not fit in a byte array.");
         }
+        return (int) Math.min((long) capacity * 2, Integer.MAX_VALUE - 8);
     }
 
     /**
-     * Sets the maximum output size of the byte array. If the byte array you want to get has more than 1000 bytes, then
-     * you can use this method to set the maximum output size.
-     * @param maxSize the maximum size in bytes of the desired output
+     * Sets the initial size of the output array for data that is not {@link Compressor#setFramed(boolean) framed}.
+     * The output grows when the decompressed data is bigger, so this is only a hint: if you know the decompressed data
+     * has more than 1000 bytes, then setting this avoids growing the array.
+     * @param maxSize the expected size in bytes of the desired output
      */
     public void setMaxOutputSize(int maxSize) {
         this.MAX_OUTPUT_SIZE = maxSize;
     }
+
+    // ByteBuffers //
+    /**
+     * Decompresses one ZLIB stream from {@code src} into {@code dst}.
+     * <p>On Java 11 and later, the {@code ByteBuffer} entry points of the {@link Inflater} are used, so that data in
+     * direct buffers stays off-heap. Heap buffers are always passed through their backing arrays without copying.</p>
+     * <p>The position of {@code src} is advanced to the end of the compressed stream and the position of {@code dst}
+     * past the decompressed data.</p>
+     * @param src the compressed data
+     * @param dst the buffer the decompressed data is written to
+     * @return the amount of decompressed bytes written to {@code dst}
+     * @throws java.nio.BufferOverflowException if {@code dst} does not have enough room for the decompressed data. The
+     * positions of both buffers are undefined when this is thrown.
+     * @throws DataFormatException if the compressed data format is invalid, or if the compressed data is incomplete
+     * @since 1.2
+     */
+    public static int decompress(ByteBuffer src, ByteBuffer dst) throws DataFormatException {
+        long start = CompressionInstrumentation.start();
+        Inflater decompressor = InflaterPool.getShared().acquire();
+        try {
+            int written = NioZlib.inflate(decompressor, src, dst);
+            CompressionInstrumentation.decompressed(decompressor.getBytesRead(), written, start);
+            return written;
+        } finally {
+            InflaterPool.getShared().release(decompressor);
+        }
+    }
+
+    // Streaming //
+    /**
+     * Decompresses the ZLIB stream that is read from {@code in} and writes the decompressed data to {@code out}.
+     * <p>The memory used is bounded by {@link Compressor#STREAM_BUFFER_SIZE}, so this can be used for payloads of any
+     * size. Neither of the streams is closed.</p>
+     * <p>The input is read in chunks, so bytes that follow the compressed stream in {@code in} can be read along with
+     * its end. When {@code in} is a {@link PushbackInputStream} with room for {@link Compressor#STREAM_BUFFER_SIZE}
+     * bytes, those bytes are pushed back, so the next read starts right after the compressed stream. Otherwise they
+     * are consumed.</p>
+     * @param in the stream containing the compressed data
+     * @param out the stream the decompressed data will be written to
+     * @return the amount of decompressed bytes written to {@code out}
+     * @throws IOException if an I/O exception occurs
+     * @throws DataFormatException if the compressed data format is invalid, or if the stream ended before the end of the
+     * compressed data.
+     * @since 1.2
+     */
+    public static long decompress(InputStream in, OutputStream out) throws IOException, DataFormatException {
+        long start = CompressionInstrumentation.start();
+        Inflater decompressor = InflaterPool.getShared().acquire();
+        byte[] inputBuffer = BufferPool.getShared().acquire(Compressor.STREAM_BUFFER_SIZE);
+        byte[] outputBuffer = BufferPool.getShared().acquire(Compressor.STREAM_BUFFER_SIZE);
+        try {
+            long written = 0;
+            int read = 0;
+
+            while (!decompressor.finished()) {
+                if (decompressor.needsInput()) {
+                    read = in.read(inputBuffer, 0, Compressor.STREAM_BUFFER_SIZE);
+                    if (read == -1) {
+                        throw new DataFormatException("The stream ended before the end of the compressed data.");
+                    }
+                    decompressor.setInput(inputBuffer, 0, read);
+                } else if (decompressor.needsDictionary()) {
+                    throw new DataFormatException("The compressed data needs a preset dictionary.");
+                }
+                int decompressedLength = decompressor.inflate(outputBuffer);
+                out.write(outputBuffer, 0, decompressedLength);
+                written += decompressedLength;
+            }
+            int remaining = decompressor.getRemaining();
+            if (remaining > 0 && in instanceof PushbackInputStream) {
+                ((PushbackInputStream) in).unread(inputBuffer, read - remaining, remaining);
+            }
+            out.flush();
+            CompressionInstrumentation.decompressed(decompressor.getBytesRead(), written, start);
+            return written;
+        } finally {
+            BufferPool.getShared().release(inputBuffer);
+            BufferPool.getShared().release(outputBuffer);
+            InflaterPool.getShared().release(decompressor);
+        }
+    }
+
+    /**
+     * Decompresses the ZLIB stream that is read from the {@code in} channel and writes the decompressed data to the
+     * {@code out} channel.
+     * <p>The memory used is bounded by {@link Compressor#STREAM_BUFFER_SIZE}, so this can be used for payloads of any
+     * size. Neither of the channels is closed.</p>
+     * <p>The input is read in chunks, so bytes that follow the compressed stream in {@code in} can be read along with
+     * its end. When {@code in} is a {@link SeekableByteChannel}, its position is moved back to right after the
+     * compressed stream. Otherwise those bytes are consumed.</p>
+     * @param in the channel containing the compressed data
+     * @param out the channel the decompressed data will be written to
+     * @return the amount of decompressed bytes written to {@code out}
+     * @throws IOException if an I/O exception occurs
+     * @throws DataFormatException if the compressed data format is invalid, or if the channel ended before the end of
+     * the compressed data.
+     * @since 1.2
+     */
+    public static long decompress(ReadableByteChannel in, WritableByteChannel out) throws IOException, DataFormatException {
+        long start = CompressionInstrumentation.start();
+        Inflater decompressor = InflaterPool.getShared().acquire();
+        byte[] inputArray = BufferPool.getShared().acquire(Compressor.STREAM_BUFFER_SIZE);
+        byte[] outputArray = BufferPool.getShared().acquire(Compressor.STREAM_BUFFER_SIZE);
+        try {
+            ByteBuffer inputBuffer = ByteBuffer.wrap(inputArray);
+            ByteBuffer outputBuffer = ByteBuffer.wrap(outputArray);
+            long written = 0;
+
+            while (!decompressor.finished()) {
+                if (decompressor.needsInput()) {
+                    ((Buffer) inputBuffer).clear();
+                    int read = in.read(inputBuffer);
+                    if (read == -1) {
+                        throw new DataFormatException("The channel ended before the end of the compressed data.");
+                    }
+                    decompressor.setInput(inputBuffer.array(), 0, read);
+                } else if (decompressor.needsDictionary()) {
+                    throw new DataFormatException("The compressed data needs a preset dictionary.");
+                }
+                ((Buffer) outputBuffer).clear();
+                int decompressedLength = decompressor.inflate(outputBuffer.array());
+                ((Buffer) outputBuffer).limit(decompressedLength);
+                while (outputBuffer.hasRemaining()) {
+                    out.write(outputBuffer);
+                }
+                written += decompressedLength;
+            }
+            int remaining = decompressor.getRemaining();
+            if (remaining > 0 && in instanceof SeekableByteChannel) {
+                SeekableByteChannel seekable = (SeekableByteChannel) in;
+                seekable.position(seekable.position() - remaining);
+            }
+            CompressionInstrumentation.decompressed(decompressor.getBytesRead(), written, start);
+            return written;
+        } finally {
+            BufferPool.getShared().release(inputArray);
+            BufferPool.getShared().release(outputArray);
+            InflaterPool.getShared().release(decompressor);
+        }
+    }
+
+    // Files //
+    /**
+     * Decompresses the ZLIB stream in the file {@code in} and writes the decompressed data to the file {@code out}.
+     * <p>The input file is memory-mapped a window of {@link Compressor#FILE_MAP_WINDOW_SIZE} bytes at a time and the
+     * output is written through a buffer of {@link Compressor#STREAM_BUFFER_SIZE} bytes, so files of any size can be
+     * decompressed without reading them into a {@code byte[]}. On Java 11 and later the mapped input and a direct
+     * output buffer are handed to the {@link Inflater} as they are, so the data never gets copied to the heap.</p>
+     * <p>The output file is created, or truncated if it exists. Bytes after the end of the compressed stream are
+     * ignored.</p>
+     * @param in the file containing the compressed data
+     * @param out the file the decompressed data will be written to
+     * @return the amount of decompressed bytes written to {@code out}
+     * @throws IOException if an I/O exception occurs
+     * @throws DataFormatException if the compressed data format is invalid, or if the file ended before the end of the
+     * compressed data.
+     * @since 1.2
+     */
+    public static long decompressFile(Path in, Path out) throws IOException, DataFormatException {
+        long start = CompressionInstrumentation.start();
+        Inflater decompressor = InflaterPool.getShared().acquire();
+        ByteBuffer outputBuffer = NioZlib.acquire(Compressor.STREAM_BUFFER_SIZE);
+        byte[] scratch = NioZlib.hasByteBufferEntryPoints() ? null : BufferPool.getShared().acquire(Compressor.STREAM_BUFFER_SIZE);
+        try (FileChannel input = FileChannel.open(in, StandardOpenOption.READ);
+             FileChannel output = FileChannel.open(out, StandardOpenOption.WRITE, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            long size = input.size();
+            long position = 0;
+            MappedByteBuffer window = null;
+            long written = 0;
+
+            while (!decompressor.finished()) {
+                if (decompressor.needsInput()) {
+                    if (window == null || !window.hasRemaining()) {
+                        if (position >= size) {
+                            throw new DataFormatException("The file ended before the end of the compressed data.");
+                        }
+                        long windowSize = Math.min(Compressor.FILE_MAP_WINDOW_SIZE, size - position);
+                        window = input.map(FileChannel.MapMode.READ_ONLY, position, windowSize);
+                        position += windowSize;
+                    }
+                    NioZlib.setInput(decompressor, window, scratch);
+                } else if (decompressor.needsDictionary()) {
+                    throw new DataFormatException("The compressed data needs a preset dictionary.");
+                }
+                ((Buffer) outputBuffer).clear();
+                int decompressedLength = NioZlib.inflateStep(decompressor, outputBuffer);
+                ((Buffer) outputBuffer).flip();
+                while (outputBuffer.hasRemaining()) {
+                    output.write(outputBuffer);
+                }
+                written += decompressedLength;
+            }
+            CompressionInstrumentation.decompressed(decompressor.getBytesRead(), written, start);
+            return written;
+        } finally {
+            NioZlib.release(outputBuffer);
+            BufferPool.getShared().release(scratch);
+            InflaterPool.getShared().release(decompressor);
+        }
+    }
 }
@@ -0,0 +1,44 @@
+package be.jonaseveraert.util.compression;
+
+import java.util.zip.DataFormatException;
+
+/**
+ * Raw deflate data (RFC 1951), without a header or checksum. This is the format used inside zip files.
+ *
+ * @author Jonas Everaert
+ * @author <a href="https://jonaseveraert.be">jonaseveraert.be</a>
+ * @since 1.2
+ */
+public class DeflateCodec extends DeflaterCodec {
+    public static final String NAME = "deflate";
+
+    /**
+     * Creates a codec with the {@link Compressor#MAX_COMPRESSION maximum compression level}.
+     */
+    public DeflateCodec() {
+        this(Compressor.MAX_COMPRESSION);
+    }
+
+    /**
+     * @param compressionLevel the compression level, a value between 0 and 9
+     * @throws InvalidCompressionLevelException Thrown when the {@code compressionLevel} is not between 0 and 9
+     */
+    public DeflateCodec(int compressionLevel) {
+        super(compressionLevel, true);
+    }
+
+    @Override
+    public String getName() {
+        return NAME;
+    }
+
+    @Override
+    public byte[] compress(byte[] input, int offset, int length) {
+        return deflate(input, offset, length, new byte[length / 2 + 64], 0);
+    }
+
+    @Override
+    public byte[] decompress(byte[] input, int offset, int length) throws DataFormatException {
+        return inflate(input, offset, length, null);
+    }
+}
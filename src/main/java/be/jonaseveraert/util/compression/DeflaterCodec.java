@@ -0,0 +1,76 @@
+package be.jonaseveraert.util.compression;
+
+import java.util.Arrays;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/**
+ * Base class of the codecs that use the {@link Deflater} and {@link Inflater} of the {@link DeflaterPool shared pools}.
+ * @since 1.2
+ */
+abstract class DeflaterCodec implements Codec {
+    private final int compressionLevel;
+    private final boolean nowrap;
+
+    DeflaterCodec(int compressionLevel, boolean nowrap) {
+        Compressor.checkCompressionLevel(compressionLevel);
+        this.compressionLevel = compressionLevel;
+        this.nowrap = nowrap;
+    }
+
+    public int getCompressionLevel() {
+        return compressionLevel;
+    }
+
+    /**
+     * Deflates the data into {@code output} starting at {@code outputOffset}, growing it when needed.
+     * @return the output array, trimmed to the compressed data
+     */
+    final byte[] deflate(byte[] input, int offset, int length, byte[] output, int outputOffset) {
+        Deflater compressor = DeflaterPool.getShared().acquire(compressionLevel, nowrap);
+        try {
+            compressor.setInput(input, offset, length);
+            compressor.finish();
+            int position = outputOffset;
+            while (!compressor.finished()) {
+                if (position == output.length) {
+                    output = Arrays.copyOf(output, output.length * 2);
+                }
+                position += compressor.deflate(output, position, output.length - position);
+            }
+            return position == output.length ? output : Arrays.copyOf(output, position);
+        } finally {
+            DeflaterPool.getShared().release(compressor);
+        }
+    }
+
+    /**
+     * Inflates one stream into a growing array.
+     * @param remaining receives the amount of input bytes after the end of the stream, if not null
+     */
+    final byte[] inflate(byte[] input, int offset, int length, int[] remaining) throws DataFormatException {
+        Inflater decompressor = InflaterPool.getShared().acquire(nowrap);
+        try {
+            decompressor.setInput(input, offset, length);
+            byte[] output = new byte[Math.max(64, length * 3)];
+            int position = 0;
+            while (!decompressor.finished()) {
+                if (position == output.length) {
+                    output = Arrays.copyOf(output, output.length * 2);
+                }
+                int inflated = decompressor.inflate(output, position, output.length - position);
+                if (inflated == 0 && !decompressor.finished() && (decompressor.needsInput() || decompressor.needsDictionary())) {
+                    throw new DataFormatException("The compressed data is incomplete.");
+                }
+                position += inflated;
+            }
+            if (remaining != null) {
+                remaining[0] = decompressor.getRemaining();
+            }
+            return position == output.length ? output : Arrays.copyOf(output, position);
+        } finally {
+            InflaterPool.getShared().release(decompressor);
+        }
+    }
+}
@@ -0,0 +1,173 @@
+package be.jonaseveraert.util.compression;
+
+import java.util.zip.Deflater;
+
+/**
+ * <p>A thread-safe pool of {@link Deflater Deflaters}, keyed by compression level.</p>
+ * <p>Every {@code Deflater} holds around {@link #ESTIMATED_NATIVE_BYTES} of native zlib memory, which is only freed
+ * when {@link Deflater#end()} is called. Creating one for every small message is expensive, so the {@link Compressor}
+ * borrows them from the {@link #getShared() shared pool} instead.</p>
+ * <p>Code example:</p>
+ * <pre>{@code
+ *     DeflaterPool pool = DeflaterPool.getShared();
+ *     Deflater deflater = pool.acquire(Compressor.MAX_COMPRESSION);
+ *     try {
+ *         // use the deflater
+ *     } finally {
+ *         pool.release(deflater);
+ *     }
+ * }</pre>
+ * <p>At most {@link #getMaxIdlePerLevel() maxIdlePerLevel} idle instances are kept per compression level, which caps
+ * the native memory held by the pool. The native memory that is in use can be monitored with
+ * {@link #getEstimatedNativeMemory()}.</p>
+ *
+ * @author Jonas Everaert
+ * @author <a href="https://jonaseveraert.be">jonaseveraert.be</a>
+ * @since 1.2
+ */
+public final class DeflaterPool {
+    /**
+     * An estimate of the native memory used by one {@link Deflater} with the default zlib settings (a 32 KB window
+     * and memory level 8).
+     */
+    public static final long ESTIMATED_NATIVE_BYTES = 268 * 1024;
+    /**
+     * The default amount of idle instances that are kept per compression level.
+     */
+    public static final int DEFAULT_MAX_IDLE_PER_LEVEL = 8;
+
+    private static final DeflaterPool SHARED = new DeflaterPool(DEFAULT_MAX_IDLE_PER_LEVEL);
+
+    /**
+     * Levels -1 (the zlib default) to 9, once for the ZLIB format and once for raw deflate ({@code nowrap})
+     */
+    private static final int NUM_LEVELS = 11;
+
+    private final NativePool<Deflater> pool;
+
+    /**
+     * Creates a new, empty pool.
+     * @param maxIdlePerLevel the maximum amount of idle instances kept per compression level
+     */
+    public DeflaterPool(int maxIdlePerLevel) {
+        this.pool = new NativePool<Deflater>(NUM_LEVELS * 2, maxIdlePerLevel) {
+            @Override
+            Deflater create(int key) {
+                return new PooledDeflater(key);
+            }
+
+            @Override
+            void reset(Deflater instance, int key) {
+                instance.reset();
+                instance.setLevel(levelOf(key));
+                instance.setStrategy(Deflater.DEFAULT_STRATEGY);
+            }
+
+            @Override
+            void end(Deflater instance) {
+                instance.end();
+            }
+        };
+    }
+
+    /**
+     * @return the pool that is used by the classes of this package
+     */
+    public static DeflaterPool getShared() {
+        return SHARED;
+    }
+
+    /**
+     * Takes a {@link Deflater} for the ZLIB format out of the pool, or creates a new one if there is none available.
+     * @param level the compression level, a value between 0 and 9, or {@link Deflater#DEFAULT_COMPRESSION}
+     * @return a {@code Deflater} in its initial state. Give it back with {@link #release(Deflater)}.
+     * @throws InvalidCompressionLevelException Thrown when the {@code level} is not between -1 and 9
+     */
+    public Deflater acquire(int level) {
+        return acquire(level, false);
+    }
+
+    /**
+     * Takes a {@link Deflater} out of the pool, or creates a new one if there is none available.
+     * @param level the compression level, a value between 0 and 9, or {@link Deflater#DEFAULT_COMPRESSION}
+     * @param nowrap if true, the {@code Deflater} will produce raw deflate data without the ZLIB header and checksum
+     * @return a {@code Deflater} in its initial state. Give it back with {@link #release(Deflater)}.
+     * @throws InvalidCompressionLevelException Thrown when the {@code level} is not between -1 and 9
+     */
+    public Deflater acquire(int level, boolean nowrap) {
+        if (level < -1 || level > 9) {
+            throw new InvalidCompressionLevelException("The compression level is not between -1 and 9.");
+        }
+        return pool.take(level + 1 + (nowrap ? NUM_LEVELS : 0));
+    }
+
+    /**
+     * Gives a {@link Deflater} back to the pool. It is reset, so it can be released in any state. If the pool already
+     * holds enough idle instances, the {@code Deflater} is {@link Deflater#end() ended} instead.
+     * <p>The {@code Deflater} must not be used anymore after calling this method.</p>
+     * @param deflater a {@code Deflater} that was {@link #acquire(int) acquired} from this pool. Other instances are ended.
+     */
+    public void release(Deflater deflater) {
+        if (deflater instanceof PooledDeflater) {
+            pool.give(deflater, ((PooledDeflater) deflater).key);
+        } else if (deflater != null) {
+            deflater.end();
+        }
+    }
+
+    /**
+     * Ends all idle instances, freeing their native memory.
+     */
+    public void clear() {
+        pool.clear();
+    }
+
+    /**
+     * @param maxIdlePerLevel the maximum amount of idle instances kept per compression level. Setting this to 0
+     *                        disables pooling.
+     */
+    public void setMaxIdlePerLevel(int maxIdlePerLevel) {
+        pool.setMaxIdlePerKey(maxIdlePerLevel);
+    }
+
+    public int getMaxIdlePerLevel() {
+        return pool.getMaxIdlePerKey();
+    }
+
+    /**
+     * @return the amount of {@code Deflaters} created by this pool that have not been ended yet, both idle and in use
+     */
+    public int getLiveCount() {
+        return pool.getLiveCount();
+    }
+
+    /**
+     * @return the amount of {@code Deflaters} waiting in the pool
+     */
+    public int getIdleCount() {
+        return pool.getIdleCount();
+    }
+
+    /**
+     * @return an estimate of the native memory in bytes held by the {@link #getLiveCount() live} {@code Deflaters}
+     */
+    public long getEstimatedNativeMemory() {
+        return pool.getLiveCount() * ESTIMATED_NATIVE_BYTES;
+    }
+
+    private static int levelOf(int key) {
+        return key % NUM_LEVELS - 1;
+    }
+
+    /**
+     * A {@link Deflater} that remembers the key it was created for.
+     */
+    private static final class PooledDeflater extends Deflater {
+        private final int key;
+
+        private PooledDeflater(int key) {
+            super(levelOf(key), key >= NUM_LEVELS);
+            this.key = key;
+        }
+    }
+}
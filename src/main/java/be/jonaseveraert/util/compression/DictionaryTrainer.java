@@ -0,0 +1,235 @@
+package be.jonaseveraert.util.compression;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * <p>Builds a {@link CompressionDictionary} from sample messages.</p>
+ * <p>The trainer works like the COVER algorithm of zstd: every 8-byte sequence (d-mer) is scored by the number of
+ * samples it occurs in. The samples are divided into as many epochs as the dictionary has segments, and from every
+ * epoch the segment with the highest total score is picked. The d-mers of a picked segment are not scored again, so
+ * the dictionary does not contain the same content twice. The best segments are put at the end of the dictionary,
+ * where the ZLIB format can refer to them with the shortest distances.</p>
+ * <p>Code example:</p>
+ * <pre>{@code
+ *     DictionaryTrainer trainer = new DictionaryTrainer();
+ *     for (byte[] message : sampleMessages) {
+ *         trainer.addSample(message);
+ *     }
+ *     CompressionDictionary dictionary = trainer.train();
+ *
+ *     Compressor compressor = new Compressor(message);
+ *     compressor.setFramed(true);
+ *     compressor.setDictionary(dictionary);
+ *     byte[] compressed = compressor.compress();
+ *
+ *     Decompressor decompressor = new Decompressor(compressed);
+ *     decompressor.addDictionary(dictionary);
+ *     byte[] decompressed = decompressor.decompress();
+ * }</pre>
+ *
+ * @author Jonas Everaert
+ * @author <a href="https://jonaseveraert.be">jonaseveraert.be</a>
+ * @since 1.2
+ */
+public class DictionaryTrainer {
+    public static final int DEFAULT_DICTIONARY_SIZE = 16 * 1024;
+    public static final int DEFAULT_SEGMENT_SIZE = 64;
+    /**
+     * The length of the sequences that are scored
+     */
+    private static final int DMER_LENGTH = 8;
+
+    private final List<byte[]> samples = new ArrayList<>();
+    private int dictionarySize = DEFAULT_DICTIONARY_SIZE;
+    private int segmentSize = DEFAULT_SEGMENT_SIZE;
+
+    /**
+     * @param sample a message that is typical for the messages that will be compressed with the dictionary. The array
+     *               is not copied and should not be changed until the dictionary is trained.
+     */
+    public void addSample(byte[] sample) {
+        samples.add(sample);
+    }
+
+    /**
+     * @param samples messages that are typical for the messages that will be compressed with the dictionary
+     */
+    public void addSamples(List<byte[]> samples) {
+        this.samples.addAll(samples);
+    }
+
+    /**
+     * Trains a dictionary on the samples that were added.
+     * @return a dictionary of at most {@link #setDictionarySize(int) dictionarySize} bytes
+     * @throws IllegalStateException if no samples were added
+     */
+    public CompressionDictionary train() {
+        if (samples.isEmpty()) {
+            throw new IllegalStateException("A dictionary cannot be trained without samples.");
+        }
+
+        // Concatenate the samples, remembering where every sample ends
+        int totalLength = 0;
+        for (byte[] sample : samples) {
+            totalLength += sample.length;
+        }
+        byte[] data = new byte[totalLength];
+        int[] sampleEnds = new int[totalLength];
+        int position = 0;
+        for (byte[] sample : samples) {
+            System.arraycopy(sample, 0, data, position, sample.length);
+            for (int i = position; i < position + sample.length; i++) {
+                sampleEnds[i] = position + sample.length;
+            }
+            position += sample.length;
+        }
+
+        if (totalLength <= dictionarySize) {
+            // Everything fits, the most recent samples last
+            return new CompressionDictionary(data);
+        }
+
+        Map<Long, Integer> frequencies = countFrequencies(data, sampleEnds);
+
+        int numEpochs = Math.max(1, dictionarySize / segmentSize);
+        int epochLength = Math.max(segmentSize, totalLength / numEpochs);
+        List<Segment> segments = new ArrayList<>();
+        int dictionaryLength = 0;
+        for (int epochStart = 0; epochStart < totalLength && dictionaryLength < dictionarySize; epochStart += epochLength) {
+            int epochEnd = Math.min(totalLength, epochStart + epochLength);
+            Segment best = bestSegment(data, sampleEnds, epochStart, epochEnd, frequencies);
+            if (best == null || best.score == 0) {
+                continue;
+            }
+            best.length = Math.min(best.length, dictionarySize - dictionaryLength);
+            segments.add(best);
+            dictionaryLength += best.length;
+
+            // Do not pick the same content again
+            for (int i = best.start; i + DMER_LENGTH <= best.start + best.length; i++) {
+                frequencies.remove(dmer(data, i));
+            }
+        }
+
+        // Best segments last
+        Collections.sort(segments, (a, b) -> Long.compare(a.score, b.score));
+        byte[] dictionary = new byte[dictionaryLength];
+        position = 0;
+        for (Segment segment : segments) {
+            System.arraycopy(data, segment.start, dictionary, position, segment.length);
+            position += segment.length;
+        }
+        return new CompressionDictionary(dictionary);
+    }
+
+    /**
+     * Counts in how many samples every d-mer occurs.
+     */
+    private static Map<Long, Integer> countFrequencies(byte[] data, int[] sampleEnds) {
+        Map<Long, Integer> frequencies = new HashMap<>();
+        Set<Long> seenInSample = new HashSet<>();
+        for (int i = 0; i < data.length; i++) {
+            if (i > 0 && sampleEnds[i] != sampleEnds[i - 1]) {
+                seenInSample.clear();
+            }
+            if (i + DMER_LENGTH > sampleEnds[i]) {
+                continue;
+            }
+            Long dmer = dmer(data, i);
+            if (seenInSample.add(dmer)) {
+                Integer frequency = frequencies.get(dmer);
+                frequencies.put(dmer, frequency == null ? 1 : frequency + 1);
+            }
+        }
+        return frequencies;
+    }
+
+    /**
+     * Finds the segment in the epoch with the highest total score of its d-mers, using a sliding window.
+     * Segments never cross the end of a sample.
+     */
+    private Segment bestSegment(byte[] data, int[] sampleEnds, int epochStart, int epochEnd, Map<Long, Integer> frequencies) {
+        Segment best = null;
+        int start = epochStart;
+        while (start < epochEnd) {
+            int sampleEnd = Math.min(sampleEnds[start], epochEnd);
+            int length = Math.min(segmentSize, sampleEnd - start);
+            int numDmers = length - DMER_LENGTH + 1;
+            if (numDmers <= 0) {
+                start = sampleEnd;
+                continue;
+            }
+
+            // Score of the window [start, start + length) in this sample
+            long[] scores = new long[sampleEnd - start - DMER_LENGTH + 1];
+            for (int i = 0; i < scores.length; i++) {
+                Integer frequency = frequencies.get(dmer(data, start + i));
+                // A d-mer that occurs in one sample only does not help other messages
+                scores[i] = frequency == null || frequency < 2 ? 0 : frequency;
+            }
+            long score = 0;
+            for (int i = 0; i < numDmers; i++) {
+                score += scores[i];
+            }
+            for (int windowStart = start; ; windowStart++) {
+                if (best == null || score > best.score) {
+                    best = new Segment(windowStart, length, score);
+                }
+                int next = windowStart - start + numDmers;
+                if (next >= scores.length) break;
+                score += scores[next] - scores[windowStart - start];
+            }
+            start = sampleEnd;
+        }
+        return best;
+    }
+
+    private static long dmer(byte[] data, int offset) {
+        long dmer = 0;
+        for (int i = offset; i < offset + DMER_LENGTH; i++) {
+            dmer = (dmer << 8) | (data[i] & 0xFF);
+        }
+        return dmer;
+    }
+
+    private static final class Segment {
+        private final int start;
+        private int length;
+        private final long score;
+
+        private Segment(int start, int length, long score) {
+            this.start = start;
+            this.length = length;
+            this.score = score;
+        }
+    }
+
+    /**
+     * @param dictionarySize the maximum size of the trained dictionary in bytes, at most
+     *                       {@link CompressionDictionary#MAX_SIZE}. Defaults to {@link #DEFAULT_DICTIONARY_SIZE}.
+     * @throws IllegalArgumentException if the size is not between 1 and {@link CompressionDictionary#MAX_SIZE}
+     */
+    public void setDictionarySize(int dictionarySize) {
+        if (dictionarySize < 1 || dictionarySize > CompressionDictionary.MAX_SIZE) {
+            throw new IllegalArgumentException("The dictionary size has to be between 1 and " + CompressionDictionary.MAX_SIZE + " bytes.");
+        }
+        this.dictionarySize = dictionarySize;
+    }
+
+    /**
+     * @param segmentSize the size of the pieces the dictionary is made of. Defaults to {@link #DEFAULT_SEGMENT_SIZE}.
+     * @throws IllegalArgumentException if the size is smaller than 8 bytes
+     */
+    public void setSegmentSize(int segmentSize) {
+        if (segmentSize < DMER_LENGTH) {
+            throw new IllegalArgumentException("The segment size has to be at least " + DMER_LENGTH + " bytes.");
+        }
+        this.segmentSize = segmentSize;
+    }
+}
@@ -0,0 +1,121 @@
+package be.jonaseveraert.util.compression;
+
+import java.util.zip.DataFormatException;
+
+/**
+ * <p>The header that the {@link Compressor} puts in front of the compressed data when {@link Compressor#setFramed(boolean)
+ * framing} is enabled.</p>
+ * <pre>
+ *     offset  size  field
+ *     0       2     magic bytes 'J' 'U'
+ *     2       1     flags
+ *     3       4     uncompressed length (big-endian)
+ *     7       4     CRC32C checksum of the uncompressed data (big-endian)
+ *     11      4     id of the dictionary, only when the {@link #FLAG_DICTIONARY dictionary flag} is set
+ *     11/15         ZLIB data, or the uncompressed data when the {@link #FLAG_STORED stored flag} is set
+ * </pre>
+ * <p>The first byte of a ZLIB stream always has 8 in its low nibble, so a frame can never be mistaken for unframed
+ * ZLIB data.</p>
+ * @since 1.2
+ */
+final class Frame {
+    static final byte MAGIC_0 = 'J';
+    static final byte MAGIC_1 = 'U';
+    static final int HEADER_LENGTH = 11;
+
+    /**
+     * The data after the header is not compressed
+     */
+    static final int FLAG_STORED = 1;
+    /**
+     * The data was compressed with a {@link CompressionDictionary}, whose id follows the checksum
+     */
+    static final int FLAG_DICTIONARY = 1 << 1;
+    private static final int KNOWN_FLAGS = FLAG_STORED | FLAG_DICTIONARY;
+
+    final int flags;
+    final int uncompressedLength;
+    final int checksum;
+    final int dictionaryId;
+    /**
+     * The offset of the compressed data
+     */
+    final int dataOffset;
+
+    private Frame(int flags, int uncompressedLength, int checksum, int dictionaryId) {
+        this.flags = flags;
+        this.uncompressedLength = uncompressedLength;
+        this.checksum = checksum;
+        this.dictionaryId = dictionaryId;
+        this.dataOffset = headerLength(flags);
+    }
+
+    static boolean isFramed(byte[] data) {
+        return data.length >= 2 && data[0] == MAGIC_0 && data[1] == MAGIC_1;
+    }
+
+    /**
+     * @return the length of a header with the given flags
+     */
+    static int headerLength(int flags) {
+        return (flags & FLAG_DICTIONARY) != 0 ? HEADER_LENGTH + 4 : HEADER_LENGTH;
+    }
+
+    /**
+     * Writes a header to the start of {@code dst}.
+     * @param dictionaryId only written when the {@link #FLAG_DICTIONARY dictionary flag} is set
+     */
+    static void writeHeader(byte[] dst, int flags, int uncompressedLength, int checksum, int dictionaryId) {
+        dst[0] = MAGIC_0;
+        dst[1] = MAGIC_1;
+        dst[2] = (byte) flags;
+        writeInt(dst, 3, uncompressedLength);
+        writeInt(dst, 7, checksum);
+        if ((flags & FLAG_DICTIONARY) != 0) {
+            writeInt(dst, 11, dictionaryId);
+        }
+    }
+
+    /**
+     * Reads the header of framed data.
+     * @throws DataFormatException if the header is incomplete or contains unknown flags
+     */
+    static Frame read(byte[] data) throws DataFormatException {
+        if (data.length < HEADER_LENGTH || !isFramed(data)) {
+            throw new DataFormatException("The frame header is incomplete.");
+        }
+        int flags = data[2] & 0xFF;
+        if ((flags & ~KNOWN_FLAGS) != 0) {
+            throw new DataFormatException("The frame uses unknown flags: " + flags);
+        }
+        if (data.length < headerLength(flags)) {
+            throw new DataFormatException("The frame header is incomplete.");
+        }
+        int uncompressedLength = readInt(data, 3);
+        if (uncompressedLength < 0) {
+            throw new DataFormatException("The frame has a negative uncompressed length.");
+        }
+        int dictionaryId = (flags & FLAG_DICTIONARY) != 0 ? readInt(data, 11) : 0;
+        return new Frame(flags, uncompressedLength, readInt(data, 7), dictionaryId);
+    }
+
+    boolean isStored() {
+        return (flags & FLAG_STORED) != 0;
+    }
+
+    boolean hasDictionary() {
+        return (flags & FLAG_DICTIONARY) != 0;
+    }
+
+    static void writeInt(byte[] dst, int offset, int value) {
+        dst[offset] = (byte) (value >>> 24);
+        dst[offset + 1] = (byte) (value >>> 16);
+        dst[offset + 2] = (byte) (value >>> 8);
+        dst[offset + 3] = (byte) value;
+    }
+
+    static int readInt(byte[] src, int offset) {
+        return ((src[offset] & 0xFF) << 24) | ((src[offset + 1] & 0xFF) << 16)
+                | ((src[offset + 2] & 0xFF) << 8) | (src[offset + 3] & 0xFF);
+    }
+}
@@ -0,0 +1,107 @@
+package be.jonaseveraert.util.compression;
+
+import java.util.Arrays;
+import java.util.zip.CRC32;
+import java.util.zip.DataFormatException;
+
+/**
+ * The GZIP format (RFC 1952), which can be read by gzip tools.
+ *
+ * @author Jonas Everaert
+ * @author <a href="https://jonaseveraert.be">jonaseveraert.be</a>
+ * @since 1.2
+ */
+public class GzipCodec extends DeflaterCodec {
+    public static final String NAME = "gzip";
+
+    private static final int HEADER_LENGTH = 10;
+    private static final int TRAILER_LENGTH = 8;
+    private static final int FHCRC = 2, FEXTRA = 4, FNAME = 8, FCOMMENT = 16;
+
+    /**
+     * Creates a codec with the {@link Compressor#MAX_COMPRESSION maximum compression level}.
+     */
+    public GzipCodec() {
+        this(Compressor.MAX_COMPRESSION);
+    }
+
+    /**
+     * @param compressionLevel the compression level, a value between 0 and 9
+     * @throws InvalidCompressionLevelException Thrown when the {@code compressionLevel} is not between 0 and 9
+     */
+    public GzipCodec(int compressionLevel) {
+        super(compressionLevel, true);
+    }
+
+    @Override
+    public String getName() {
+        return NAME;
+    }
+
+    @Override
+    public byte[] compress(byte[] input, int offset, int length) {
+        byte[] output = new byte[HEADER_LENGTH + length / 2 + 64];
+        int xfl = getCompressionLevel() == Compressor.MAX_COMPRESSION ? 2 : getCompressionLevel() == Compressor.FASTEST_COMPRESSION ? 4 : 0;
+        // magic, deflate, no flags, no modification time, extra flags, unknown OS
+        byte[] header = {0x1f, (byte) 0x8b, 8, 0, 0, 0, 0, 0, (byte) xfl, (byte) 0xff};
+        System.arraycopy(header, 0, output, 0, HEADER_LENGTH);
+        output = deflate(input, offset, length, output, HEADER_LENGTH);
+
+        CRC32 crc = new CRC32();
+        crc.update(input, offset, length);
+        byte[] result = Arrays.copyOf(output, output.length + TRAILER_LENGTH);
+        writeIntLE(result, output.length, (int) crc.getValue());
+        writeIntLE(result, output.length + 4, length);
+        return result;
+    }
+
+    @Override
+    public byte[] decompress(byte[] input, int offset, int length) throws DataFormatException {
+        int end = offset + length;
+        if (length < HEADER_LENGTH + TRAILER_LENGTH || input[offset] != 0x1f || input[offset + 1] != (byte) 0x8b || input[offset + 2] != 8) {
+            throw new DataFormatException("The data is not in the GZIP format.");
+        }
+        int flags = input[offset + 3] & 0xFF;
+        int position = offset + HEADER_LENGTH;
+        if ((flags & FEXTRA) != 0) {
+            if (position + 2 > end) throw new DataFormatException("The GZIP header is incomplete.");
+            position += 2 + ((input[position] & 0xFF) | (input[position + 1] & 0xFF) << 8);
+        }
+        if ((flags & FNAME) != 0) position = skipZeroTerminated(input, position, end);
+        if ((flags & FCOMMENT) != 0) position = skipZeroTerminated(input, position, end);
+        if ((flags & FHCRC) != 0) position += 2;
+        if (position + TRAILER_LENGTH > end) {
+            throw new DataFormatException("The GZIP header is incomplete.");
+        }
+
+        int[] remaining = new int[1];
+        byte[] output = inflate(input, position, end - position, remaining);
+        int trailer = end - remaining[0];
+        if (remaining[0] < TRAILER_LENGTH) {
+            throw new DataFormatException("The GZIP trailer is incomplete.");
+        }
+        CRC32 crc = new CRC32();
+        crc.update(output);
+        if (readIntLE(input, trailer) != (int) crc.getValue() || readIntLE(input, trailer + 4) != output.length) {
+            throw new DataFormatException("The checksum or length in the GZIP trailer does not match the decompressed data.");
+        }
+        return output;
+    }
+
+    private static int skipZeroTerminated(byte[] input, int position, int end) throws DataFormatException {
+        while (position < end && input[position] != 0) position++;
+        if (position == end) throw new DataFormatException("The GZIP header is incomplete.");
+        return position + 1;
+    }
+
+    private static void writeIntLE(byte[] dst, int offset, int value) {
+        dst[offset] = (byte) value;
+        dst[offset + 1] = (byte) (value >>> 8);
+        dst[offset + 2] = (byte) (value >>> 16);
+        dst[offset + 3] = (byte) (value >>> 24);
+    }
+
+    private static int readIntLE(byte[] src, int offset) {
+        return (src[offset] & 0xFF) | (src[offset + 1] & 0xFF) << 8 | (src[offset + 2] & 0xFF) << 16 | (src[offset + 3] & 0xFF) << 24;
+    }
+}
@@ -0,0 +1,140 @@
+package be.jonaseveraert.util.compression;
+
+import java.util.zip.Inflater;
+
+/**
+ * <p>A thread-safe pool of {@link Inflater Inflaters}.</p>
+ * <p>Every {@code Inflater} holds around {@link #ESTIMATED_NATIVE_BYTES} of native zlib memory, which is only freed
+ * when {@link Inflater#end()} is called. The {@link Decompressor} borrows them from the {@link #getShared() shared pool}
+ * instead of creating one for every call. For a code example, see the {@link DeflaterPool}.</p>
+ *
+ * @author Jonas Everaert
+ * @author <a href="https://jonaseveraert.be">jonaseveraert.be</a>
+ * @since 1.2
+ */
+public final class InflaterPool {
+    /**
+     * An estimate of the native memory used by one {@link Inflater} with a 32 KB window.
+     */
+    public static final long ESTIMATED_NATIVE_BYTES = 44 * 1024;
+    /**
+     * The default amount of idle instances that are kept for each format.
+     */
+    public static final int DEFAULT_MAX_IDLE = 16;
+
+    private static final InflaterPool SHARED = new InflaterPool(DEFAULT_MAX_IDLE);
+
+    private final NativePool<Inflater> pool;
+
+    /**
+     * Creates a new, empty pool.
+     * @param maxIdle the maximum amount of idle instances kept for each format (ZLIB and raw deflate)
+     */
+    public InflaterPool(int maxIdle) {
+        this.pool = new NativePool<Inflater>(2, maxIdle) {
+            @Override
+            Inflater create(int key) {
+                return new PooledInflater(key);
+            }
+
+            @Override
+            void reset(Inflater instance, int key) {
+                instance.reset();
+            }
+
+            @Override
+            void end(Inflater instance) {
+                instance.end();
+            }
+        };
+    }
+
+    /**
+     * @return the pool that is used by the classes of this package
+     */
+    public static InflaterPool getShared() {
+        return SHARED;
+    }
+
+    /**
+     * Takes an {@link Inflater} for the ZLIB format out of the pool, or creates a new one if there is none available.
+     * @return an {@code Inflater} in its initial state. Give it back with {@link #release(Inflater)}.
+     */
+    public Inflater acquire() {
+        return acquire(false);
+    }
+
+    /**
+     * Takes an {@link Inflater} out of the pool, or creates a new one if there is none available.
+     * @param nowrap if true, the {@code Inflater} will read raw deflate data without the ZLIB header and checksum
+     * @return an {@code Inflater} in its initial state. Give it back with {@link #release(Inflater)}.
+     */
+    public Inflater acquire(boolean nowrap) {
+        return pool.take(nowrap ? 1 : 0);
+    }
+
+    /**
+     * Gives an {@link Inflater} back to the pool. It is reset, so it can be released in any state. If the pool already
+     * holds enough idle instances, the {@code Inflater} is {@link Inflater#end() ended} instead.
+     * <p>The {@code Inflater} must not be used anymore after calling this method.</p>
+     * @param inflater an {@code Inflater} that was {@link #acquire() acquired} from this pool. Other instances are ended.
+     */
+    public void release(Inflater inflater) {
+        if (inflater instanceof PooledInflater) {
+            pool.give(inflater, ((PooledInflater) inflater).key);
+        } else if (inflater != null) {
+            inflater.end();
+        }
+    }
+
+    /**
+     * Ends all idle instances, freeing their native memory.
+     */
+    public void clear() {
+        pool.clear();
+    }
+
+    /**
+     * @param maxIdle the maximum amount of idle instances kept for each format. Setting this to 0 disables pooling.
+     */
+    public void setMaxIdle(int maxIdle) {
+        pool.setMaxIdlePerKey(maxIdle);
+    }
+
+    public int getMaxIdle() {
+        return pool.getMaxIdlePerKey();
+    }
+
+    /**
+     * @return the amount of {@code Inflaters} created by this pool that have not been ended yet, both idle and in use
+     */
+    public int getLiveCount() {
+        return pool.getLiveCount();
+    }
+
+    /**
+     * @return the amount of {@code Inflaters} waiting in the pool
+     */
+    public int getIdleCount() {
+        return pool.getIdleCount();
+    }
+
+    /**
+     * @return an estimate of the native memory in bytes held by the {@link #getLiveCount() live} {@code Inflaters}
+     */
+    public long getEstimatedNativeMemory() {
+        return pool.getLiveCount() * ESTIMATED_NATIVE_BYTES;
+    }
+
+    /**
+     * An {@link Inflater} that remembers the key it was created for.
+     */
+    private static final class PooledInflater extends Inflater {
+        private final int key;
+
+        private PooledInflater(int key) {
+            super(key == 1);
+            this.key = key;
+        }
+    }
+}
@@ -0,0 +1,84 @@
+package be.jonaseveraert.util.compression;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * <p>A lock-free histogram of durations, with one bucket per power of two nanoseconds.</p>
+ * <p>Recording is one atomic increment, so it can be done on every call. Percentiles are accurate up to a factor of two,
+ * which is enough to tell microseconds from milliseconds.</p>
+ *
+ * @author Jonas Everaert
+ * @author <a href="https://jonaseveraert.be">jonaseveraert.be</a>
+ * @since 1.2
+ */
+public class LatencyHistogram {
+    private static final int NUM_BUCKETS = 64;
+
+    /**
+     * Bucket {@code i} counts the durations {@code d} with {@code 2^(i-1) <= d < 2^i}; bucket 0 counts durations of 0.
+     */
+    private final AtomicLongArray buckets = new AtomicLongArray(NUM_BUCKETS);
+
+    /**
+     * @param nanos a duration in nanoseconds
+     */
+    public void record(long nanos) {
+        buckets.incrementAndGet(NUM_BUCKETS - Long.numberOfLeadingZeros(Math.max(nanos, 0)));
+    }
+
+    /**
+     * @return the amount of recorded durations
+     */
+    public long getCount() {
+        long count = 0;
+        for (int i = 0; i < NUM_BUCKETS; i++) {
+            count += buckets.get(i);
+        }
+        return count;
+    }
+
+    /**
+     * @param percentile a value between 0 and 100, e.g. 99 for the 99th percentile
+     * @return the upper bound in nanoseconds of the bucket that contains the percentile, or 0 if nothing was recorded
+     */
+    public long getPercentile(double percentile) {
+        if (percentile < 0 || percentile > 100) {
+            throw new IllegalArgumentException("The percentile has to be between 0 and 100.");
+        }
+        long[] counts = new long[NUM_BUCKETS];
+        long total = 0;
+        for (int i = 0; i < NUM_BUCKETS; i++) {
+            counts[i] = buckets.get(i);
+            total += counts[i];
+        }
+        if (total == 0) {
+            return 0;
+        }
+        long rank = (long) Math.ceil(total * percentile / 100);
+        long seen = 0;
+        for (int i = 0; i < NUM_BUCKETS; i++) {
+            seen += counts[i];
+            if (seen >= Math.max(rank, 1)) {
+                return (1L << i) - 1;
+            }
+        }
+        return Long.MAX_VALUE; // unreachable
+    }
+
+    /**
+     * @return the amount of durations per bucket; entry {@code i} counts durations below {@code 2^i} nanoseconds
+     */
+    public long[] getBuckets() {
+        long[] counts = new long[NUM_BUCKETS];
+        for (int i = 0; i < NUM_BUCKETS; i++) {
+            counts[i] = buckets.get(i);
+        }
+        return counts;
+    }
+
+    public void reset() {
+        for (int i = 0; i < NUM_BUCKETS; i++) {
+            buckets.set(i, 0);
+        }
+    }
+}
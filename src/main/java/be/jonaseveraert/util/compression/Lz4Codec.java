@@ -0,0 +1,276 @@
+package be.jonaseveraert.util.compression;
+
+import java.util.Arrays;
+import java.util.zip.DataFormatException;
+
+/**
+ * <p>A pure-Java implementation of the LZ4 block format.</p>
+ * <p>LZ4 only replaces repeated sequences by references and does no entropy coding, so it compresses less than deflate,
+ * but both compression and decompression are several times faster. Use it on hot paths where the CPU cost of deflate
+ * dominates.</p>
+ * <p>The output is the uncompressed length (4 bytes, big-endian) followed by one LZ4 block. Other LZ4 tools need the
+ * length to be stripped off, as the LZ4 block format does not record it.</p>
+ *
+ * @author Jonas Everaert
+ * @author <a href="https://jonaseveraert.be">jonaseveraert.be</a>
+ * @since 1.2
+ * @see <a href="https://github.com/lz4/lz4/blob/dev/doc/lz4_Block_format.md">LZ4 Block Format Description</a>
+ */
+public class Lz4Codec implements Codec {
+    public static final String NAME = "lz4";
+
+    private static final int MIN_MATCH = 4;
+    /**
+     * The last 5 bytes of a block are always literals
+     */
+    private static final int LAST_LITERALS = 5;
+    /**
+     * The last match has to start at least 12 bytes before the end of a block
+     */
+    private static final int MF_LIMIT = 12;
+    private static final int MAX_DISTANCE = 65535;
+    private static final int HASH_LOG = 12;
+    /**
+     * After this many misses in a row, the compressor starts skipping bytes
+     */
+    private static final int SKIP_TRIGGER = 6;
+    private static final int LENGTH_PREFIX = 4;
+    /**
+     * An LZ4 block cannot expand more than this: every input byte adds at most 255 bytes to a length
+     */
+    private static final int MAX_EXPANSION = 255;
+    /**
+     * The output of {@link #decompress(byte[], int, int)} starts at this many times the compressed length, but at least
+     * at {@link #INITIAL_OUTPUT_SIZE}, because the recorded length comes from the input and cannot be trusted
+     */
+    private static final int INITIAL_OUTPUT_RATIO = 4;
+    private static final int INITIAL_OUTPUT_SIZE = 64 * 1024;
+
+    @Override
+    public String getName() {
+        return NAME;
+    }
+
+    /**
+     * @param length the length of the uncompressed data
+     * @return the maximum length of the compressed data
+     */
+    public static int maxCompressedLength(int length) {
+        return LENGTH_PREFIX + length + length / 255 + 16;
+    }
+
+    @Override
+    public byte[] compress(byte[] input, int offset, int length) {
+        byte[] output = new byte[maxCompressedLength(length)];
+        Frame.writeInt(output, 0, length);
+        int outputLength = compressBlock(input, offset, length, output, LENGTH_PREFIX);
+        return Arrays.copyOf(output, outputLength);
+    }
+
+    /**
+     * @return the position in {@code output} after the block
+     */
+    private static int compressBlock(byte[] src, int offset, int length, byte[] dst, int op) {
+        int end = offset + length;
+        int anchor = offset;
+        if (length >= MF_LIMIT + 1) {
+            // Positions + 1 of earlier 4-byte sequences; 0 means empty
+            int[] table = new int[1 << HASH_LOG];
+            int matchLimit = end - LAST_LITERALS;
+            int mfLimit = end - MF_LIMIT;
+            int ip = offset;
+            int searches = 1 << SKIP_TRIGGER;
+
+            while (ip < mfLimit) {
+                int sequence = readInt(src, ip);
+                int hash = hash(sequence);
+                int ref = table[hash] - 1;
+                table[hash] = ip + 1;
+
+                if (ref < 0 || ip - ref > MAX_DISTANCE || readInt(src, ref) != sequence) {
+                    ip += searches++ >>> SKIP_TRIGGER;
+                    continue;
+                }
+                searches = 1 << SKIP_TRIGGER;
+
+                // Extend the match backwards into the literals
+                while (ip > anchor && ref > offset && src[ip - 1] == src[ref - 1]) {
+                    ip--;
+                    ref--;
+                }
+                // And forwards
+                int matchLength = MIN_MATCH;
+                while (ip + matchLength < matchLimit && src[ip + matchLength] == src[ref + matchLength]) {
+                    matchLength++;
+                }
+
+                op = writeSequence(src, anchor, ip - anchor, ip - ref, matchLength, dst, op);
+                ip += matchLength;
+                anchor = ip;
+                if (ip - 2 >= offset && ip < mfLimit) {
+                    table[hash(readInt(src, ip - 2))] = ip - 2 + 1;
+                }
+            }
+        }
+
+        // Last literals
+        int literalLength = end - anchor;
+        op = writeLength(dst, op, literalLength, literalLength << 4);
+        System.arraycopy(src, anchor, dst, op, literalLength);
+        return op + literalLength;
+    }
+
+    private static int writeSequence(byte[] src, int literalStart, int literalLength, int distance, int matchLength, byte[] dst, int op) {
+        int tokenPosition = op;
+        int matchToken = Math.min(matchLength - MIN_MATCH, 15);
+        op = writeLength(dst, op, literalLength, matchToken);
+        System.arraycopy(src, literalStart, dst, op, literalLength);
+        op += literalLength;
+
+        dst[op++] = (byte) distance;
+        dst[op++] = (byte) (distance >>> 8);
+
+        if (matchToken == 15) {
+            int remaining = matchLength - MIN_MATCH - 15;
+            while (remaining >= 255) {
+                dst[op++] = (byte) 255;
+                remaining -= 255;
+            }
+            dst[op++] = (byte) remaining;
+        }
+        return op;
+    }
+
+    /**
+     * Writes the token with the literal length and the extra literal length bytes.
+     * @param lowBits the low 4 bits of the token
+     */
+    private static int writeLength(byte[] dst, int op, int literalLength, int lowBits) {
+        int token = Math.min(literalLength, 15) << 4 | (lowBits & 0x0F);
+        dst[op++] = (byte) token;
+        if (literalLength >= 15) {
+            int remaining = literalLength - 15;
+            while (remaining >= 255) {
+                dst[op++] = (byte) 255;
+                remaining -= 255;
+            }
+            dst[op++] = (byte) remaining;
+        }
+        return op;
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>The recorded uncompressed length is only trusted as an upper bound: the output starts small and grows while
+     * the data is decompressed. Lengths that LZ4 cannot reach with the given input are rejected right away.</p>
+     * @throws IndexOutOfBoundsException if the range is not inside {@code input}
+     */
+    @Override
+    public byte[] decompress(byte[] input, int offset, int length) throws DataFormatException {
+        if (offset < 0 || length < 0 || offset > input.length - length) {
+            throw new IndexOutOfBoundsException("The range [" + offset + ", " + offset + " + " + length + ") is not inside an array of length " + input.length);
+        }
+        if (length < LENGTH_PREFIX + 1) {
+            throw new DataFormatException("The LZ4 data is incomplete.");
+        }
+        int uncompressedLength = Frame.readInt(input, offset);
+        if (uncompressedLength < 0) {
+            throw new DataFormatException("The LZ4 data has a negative uncompressed length.");
+        }
+        if (uncompressedLength > (long) (length - LENGTH_PREFIX) * MAX_EXPANSION) {
+            throw new DataFormatException("The LZ4 data is too short for its recorded uncompressed length.");
+        }
+        byte[] output = new byte[(int) Math.min(uncompressedLength, Math.max(INITIAL_OUTPUT_SIZE, (long) length * INITIAL_OUTPUT_RATIO))];
+        int end = offset + length;
+        int ip = offset + LENGTH_PREFIX;
+        int op = 0;
+
+        while (true) {
+            if (ip == end) {
+                throw new DataFormatException("The LZ4 data is incomplete.");
+            }
+            int token = input[ip++] & 0xFF;
+
+            int literalLength = token >>> 4;
+            if (literalLength == 15) {
+                int b;
+                do {
+                    if (ip == end || literalLength > end - ip) {
+                        throw new DataFormatException("The LZ4 data is incomplete.");
+                    }
+                    b = input[ip++] & 0xFF;
+                    literalLength += b;
+                } while (b == 255);
+            }
+            if (literalLength > end - ip || literalLength > uncompressedLength - op) {
+                throw new DataFormatException("The LZ4 data is corrupt.");
+            }
+            if (literalLength > output.length - op) {
+                output = grow(output, op + literalLength, uncompressedLength);
+            }
+            System.arraycopy(input, ip, output, op, literalLength);
+            ip += literalLength;
+            op += literalLength;
+
+            if (ip == end) {
+                break; // The last sequence only has literals
+            }
+
+            if (end - ip < 2) {
+                throw new DataFormatException("The LZ4 data is incomplete.");
+            }
+            int distance = (input[ip++] & 0xFF) | (input[ip++] & 0xFF) << 8;
+            int matchLength = token & 0x0F;
+            if (matchLength == 15) {
+                int b;
+                do {
+                    if (ip == end || matchLength > uncompressedLength - op) {
+                        throw new DataFormatException("The LZ4 data is corrupt.");
+                    }
+                    b = input[ip++] & 0xFF;
+                    matchLength += b;
+                } while (b == 255);
+            }
+            matchLength += MIN_MATCH;
+
+            int ref = op - distance;
+            if (distance == 0 || ref < 0 || matchLength > uncompressedLength - op) {
+                throw new DataFormatException("The LZ4 data is corrupt.");
+            }
+            if (matchLength > output.length - op) {
+                output = grow(output, op + matchLength, uncompressedLength);
+            }
+            if (distance >= matchLength) {
+                System.arraycopy(output, ref, output, op, matchLength);
+                op += matchLength;
+            } else {
+                // Overlapping match: the copy repeats the last {@code distance} bytes
+                for (int i = 0; i < matchLength; i++) {
+                    output[op++] = output[ref + i];
+                }
+            }
+        }
+
+        if (op != uncompressedLength) {
+            throw new DataFormatException("The decompressed length does not match the recorded length.");
+        }
+        return output;
+    }
+
+    /**
+     * Doubles the output until {@code needed} bytes fit, but never beyond the recorded length, so that complete data
+     * ends in an array of exactly that length.
+     */
+    private static byte[] grow(byte[] output, int needed, int uncompressedLength) {
+        long capacity = Math.max(needed, (long) output.length * 2);
+        return Arrays.copyOf(output, (int) Math.min(capacity, uncompressedLength));
+    }
+
+    private static int readInt(byte[] src, int offset) {
+        return (src[offset] & 0xFF) | (src[offset + 1] & 0xFF) << 8 | (src[offset + 2] & 0xFF) << 16 | (src[offset + 3] & 0xFF) << 24;
+    }
+
+    private static int hash(int sequence) {
+        return (sequence * -1640531535) >>> (32 - HASH_LOG);
+    }
+}
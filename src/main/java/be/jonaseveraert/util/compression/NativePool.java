@@ -0,0 +1,95 @@
+package be.jonaseveraert.util.compression;
+
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Base class of the {@link DeflaterPool} and the {@link InflaterPool}. Keeps a lock-free stack of idle instances per
+ * key and counts how many instances are alive (created and not yet ended).
+ * @param <T> the pooled type
+ * @since 1.2
+ */
+abstract class NativePool<T> {
+    private final ConcurrentLinkedDeque<T>[] idle;
+    private final AtomicInteger[] idleCounts;
+    private final AtomicInteger liveCount = new AtomicInteger();
+    private volatile int maxIdlePerKey;
+
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    NativePool(int numKeys, int maxIdlePerKey) {
+        setMaxIdlePerKey(maxIdlePerKey);
+        this.idle = new ConcurrentLinkedDeque[numKeys];
+        this.idleCounts = new AtomicInteger[numKeys];
+        for (int i = 0; i < numKeys; i++) {
+            idle[i] = new ConcurrentLinkedDeque<>();
+            idleCounts[i] = new AtomicInteger();
+        }
+    }
+
+    abstract T create(int key);
+
+    /**
+     * Resets the instance so that it can be handed out again.
+     */
+    abstract void reset(T instance, int key);
+
+    abstract void end(T instance);
+
+    final T take(int key) {
+        T instance = idle[key].pollFirst();
+        if (instance != null) {
+            idleCounts[key].decrementAndGet();
+            return instance;
+        }
+        liveCount.incrementAndGet();
+        return create(key);
+    }
+
+    final void give(T instance, int key) {
+        if (idleCounts[key].incrementAndGet() <= maxIdlePerKey) {
+            reset(instance, key);
+            idle[key].offerFirst(instance);
+        } else {
+            idleCounts[key].decrementAndGet();
+            discard(instance);
+        }
+    }
+
+    final void discard(T instance) {
+        end(instance);
+        liveCount.decrementAndGet();
+    }
+
+    final void setMaxIdlePerKey(int maxIdlePerKey) {
+        if (maxIdlePerKey < 0) {
+            throw new IllegalArgumentException("The maximum amount of idle instances cannot be negative.");
+        }
+        this.maxIdlePerKey = maxIdlePerKey;
+    }
+
+    final int getMaxIdlePerKey() {
+        return maxIdlePerKey;
+    }
+
+    final int getLiveCount() {
+        return liveCount.get();
+    }
+
+    final int getIdleCount() {
+        int count = 0;
+        for (AtomicInteger idleCount : idleCounts) {
+            count += idleCount.get();
+        }
+        return count;
+    }
+
+    final void clear() {
+        for (int key = 0; key < idle.length; key++) {
+            T instance;
+            while ((instance = idle[key].pollFirst()) != null) {
+                idleCounts[key].decrementAndGet();
+                discard(instance);
+            }
+        }
+    }
+}
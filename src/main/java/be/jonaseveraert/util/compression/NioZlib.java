@@ -0,0 +1,293 @@
+package be.jonaseveraert.util.compression;
+
+import be.jonaseveraert.util.arrays.BufferPool;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.nio.Buffer;
+import java.nio.BufferOverflowException;
+import java.nio.ByteBuffer;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/**
+ * <p>Feeds {@link ByteBuffer ByteBuffers} to {@link Deflater Deflaters} and {@link Inflater Inflaters}.</p>
+ * <p>On Java 11 and later, the {@code ByteBuffer} entry points of {@code Deflater} and {@code Inflater} are used, so
+ * direct buffers never get copied to the heap. On older versions, heap buffers are passed through their backing arrays
+ * and direct buffers are copied through a small scratch array.</p>
+ * @since 1.2
+ */
+final class NioZlib {
+    private static final int SCRATCH_SIZE = 16 * 1024;
+
+    // null when running on a Java version before 11
+    private static final MethodHandle DEFLATER_SET_INPUT;
+    private static final MethodHandle DEFLATER_DEFLATE;
+    private static final MethodHandle INFLATER_SET_INPUT;
+    private static final MethodHandle INFLATER_INFLATE;
+
+    static {
+        MethodHandles.Lookup lookup = MethodHandles.publicLookup();
+        MethodHandle deflaterSetInput = null, deflaterDeflate = null, inflaterSetInput = null, inflaterInflate = null;
+        try {
+            deflaterSetInput = lookup.findVirtual(Deflater.class, "setInput", MethodType.methodType(void.class, ByteBuffer.class));
+            deflaterDeflate = lookup.findVirtual(Deflater.class, "deflate", MethodType.methodType(int.class, ByteBuffer.class));
+            inflaterSetInput = lookup.findVirtual(Inflater.class, "setInput", MethodType.methodType(void.class, ByteBuffer.class));
+            inflaterInflate = lookup.findVirtual(Inflater.class, "inflate", MethodType.methodType(int.class, ByteBuffer.class));
+        } catch (NoSuchMethodException | IllegalAccessException e) {
+            deflaterSetInput = deflaterDeflate = inflaterSetInput = inflaterInflate = null;
+        }
+        DEFLATER_SET_INPUT = deflaterSetInput;
+        DEFLATER_DEFLATE = deflaterDeflate;
+        INFLATER_SET_INPUT = inflaterSetInput;
+        INFLATER_INFLATE = inflaterInflate;
+    }
+
+    private NioZlib() {}
+
+    /**
+     * @return true if the {@code ByteBuffer} entry points of Java 11 are available
+     */
+    static boolean hasByteBufferEntryPoints() {
+        return DEFLATER_SET_INPUT != null;
+    }
+
+    /**
+     * Deflates all remaining bytes of {@code src} into {@code dst} and finishes the stream. Both positions are advanced.
+     * @return the amount of bytes written to {@code dst}
+     * @throws BufferOverflowException if {@code dst} is too small for the compressed data
+     */
+    static int deflate(Deflater deflater, ByteBuffer src, ByteBuffer dst) {
+        int start = dst.position();
+        if (DEFLATER_SET_INPUT != null) {
+            invoke(DEFLATER_SET_INPUT, deflater, src);
+            deflater.finish();
+            while (!deflater.finished()) {
+                if (!dst.hasRemaining()) throw new BufferOverflowException();
+                invokeInt(DEFLATER_DEFLATE, deflater, dst);
+            }
+            return dst.position() - start;
+        }
+
+        byte[] inputScratch = src.hasArray() ? null : BufferPool.getShared().acquire(Math.min(SCRATCH_SIZE, src.remaining()));
+        byte[] outputScratch = dst.hasArray() ? null : BufferPool.getShared().acquire(SCRATCH_SIZE);
+        try {
+            do {
+                if (deflater.needsInput()) {
+                    if (src.hasArray()) {
+                        deflater.setInput(src.array(), src.arrayOffset() + src.position(), src.remaining());
+                        ((Buffer) src).position(src.limit());
+                    } else {
+                        int length = Math.min(inputScratch.length, src.remaining());
+                        src.get(inputScratch, 0, length);
+                        deflater.setInput(inputScratch, 0, length);
+                    }
+                    if (!src.hasRemaining()) deflater.finish();
+                }
+                if (!dst.hasRemaining()) throw new BufferOverflowException();
+                if (dst.hasArray()) {
+                    int written = deflater.deflate(dst.array(), dst.arrayOffset() + dst.position(), dst.remaining());
+                    ((Buffer) dst).position(dst.position() + written);
+                } else {
+                    int written = deflater.deflate(outputScratch, 0, Math.min(outputScratch.length, dst.remaining()));
+                    dst.put(outputScratch, 0, written);
+                }
+            } while (!deflater.finished());
+        } finally {
+            BufferPool.getShared().release(inputScratch);
+            BufferPool.getShared().release(outputScratch);
+        }
+        return dst.position() - start;
+    }
+
+    /**
+     * Inflates one ZLIB stream from {@code src} into {@code dst}. The position of {@code src} is advanced to the end of
+     * the stream, the position of {@code dst} past the decompressed data.
+     * @return the amount of bytes written to {@code dst}
+     * @throws BufferOverflowException if {@code dst} is too small for the decompressed data
+     * @throws DataFormatException if the compressed data is invalid or incomplete
+     */
+    static int inflate(Inflater inflater, ByteBuffer src, ByteBuffer dst) throws DataFormatException {
+        int start = dst.position();
+        if (INFLATER_SET_INPUT != null) {
+            invoke(INFLATER_SET_INPUT, inflater, src);
+            while (!inflater.finished()) {
+                int written;
+                try {
+                    written = (int) INFLATER_INFLATE.invokeExact(inflater, dst);
+                } catch (DataFormatException | RuntimeException | Error e) {
+                    throw e;
+                } catch (Throwable t) {
+                    throw new IllegalStateException(t);
+                }
+                checkProgress(inflater, dst, written);
+            }
+            return dst.position() - start;
+        }
+
+        byte[] inputScratch = src.hasArray() ? null : BufferPool.getShared().acquire(Math.min(SCRATCH_SIZE, src.remaining()));
+        byte[] outputScratch = dst.hasArray() ? null : BufferPool.getShared().acquire(SCRATCH_SIZE);
+        try {
+            while (!inflater.finished()) {
+                if (inflater.needsInput() && src.hasRemaining()) {
+                    if (src.hasArray()) {
+                        inflater.setInput(src.array(), src.arrayOffset() + src.position(), src.remaining());
+                        ((Buffer) src).position(src.limit());
+                    } else {
+                        int length = Math.min(inputScratch.length, src.remaining());
+                        src.get(inputScratch, 0, length);
+                        inflater.setInput(inputScratch, 0, length);
+                    }
+                }
+                int written;
+                if (dst.hasArray()) {
+                    written = inflater.inflate(dst.array(), dst.arrayOffset() + dst.position(), dst.remaining());
+                    ((Buffer) dst).position(dst.position() + written);
+                } else {
+                    written = inflater.inflate(outputScratch, 0, Math.min(outputScratch.length, dst.remaining()));
+                    dst.put(outputScratch, 0, written);
+                }
+                checkProgress(inflater, dst, written);
+            }
+        } finally {
+            BufferPool.getShared().release(inputScratch);
+            BufferPool.getShared().release(outputScratch);
+        }
+        // Give back the input that was handed to the inflater but lies after the end of the stream
+        ((Buffer) src).position(src.position() - inflater.getRemaining());
+        return dst.position() - start;
+    }
+
+    /**
+     * Leases a buffer from the {@link BufferPool#getShared() shared pool}: a direct buffer when the {@code ByteBuffer}
+     * entry points are available, otherwise a heap buffer, which the older versions can use without copying. Give it
+     * back with {@link #release(ByteBuffer)}.
+     */
+    static ByteBuffer acquire(int capacity) {
+        if (DEFLATER_DEFLATE != null) {
+            return BufferPool.getShared().acquireDirect(capacity);
+        }
+        return ByteBuffer.wrap(BufferPool.getShared().acquire(capacity), 0, capacity);
+    }
+
+    /**
+     * Gives a buffer from {@link #acquire(int)} back to the pool.
+     */
+    static void release(ByteBuffer buffer) {
+        if (buffer == null) return;
+        if (buffer.isDirect()) {
+            BufferPool.getShared().release(buffer);
+        } else {
+            BufferPool.getShared().release(buffer.array());
+        }
+    }
+
+    /**
+     * Hands the remaining bytes of {@code src} to the deflater. With the {@code ByteBuffer} entry points the position
+     * of {@code src} advances while the deflater consumes it. Otherwise heap buffers are passed through their backing
+     * array and direct buffers are copied through the {@code scratch} array, a chunk at a time; the position of
+     * {@code src} then advances immediately. Call this again when the deflater {@link Deflater#needsInput() needs input}
+     * and {@code src} has remaining bytes.
+     */
+    static void setInput(Deflater deflater, ByteBuffer src, byte[] scratch) {
+        if (DEFLATER_SET_INPUT != null) {
+            invoke(DEFLATER_SET_INPUT, deflater, src);
+        } else if (src.hasArray()) {
+            deflater.setInput(src.array(), src.arrayOffset() + src.position(), src.remaining());
+            ((Buffer) src).position(src.limit());
+        } else {
+            int length = Math.min(scratch.length, src.remaining());
+            src.get(scratch, 0, length);
+            deflater.setInput(scratch, 0, length);
+        }
+    }
+
+    /**
+     * Same as {@link #setInput(Deflater, ByteBuffer, byte[])}, for an inflater.
+     */
+    static void setInput(Inflater inflater, ByteBuffer src, byte[] scratch) {
+        if (INFLATER_SET_INPUT != null) {
+            invoke(INFLATER_SET_INPUT, inflater, src);
+        } else if (src.hasArray()) {
+            inflater.setInput(src.array(), src.arrayOffset() + src.position(), src.remaining());
+            ((Buffer) src).position(src.limit());
+        } else {
+            int length = Math.min(scratch.length, src.remaining());
+            src.get(scratch, 0, length);
+            inflater.setInput(scratch, 0, length);
+        }
+    }
+
+    /**
+     * Deflates once into a buffer from {@link #acquire(int)}, advancing its position.
+     * @return the amount of bytes written to {@code dst}
+     */
+    static int deflateStep(Deflater deflater, ByteBuffer dst) {
+        if (dst.hasArray()) {
+            int written = deflater.deflate(dst.array(), dst.arrayOffset() + dst.position(), dst.remaining());
+            ((Buffer) dst).position(dst.position() + written);
+            return written;
+        }
+        return invokeInt(DEFLATER_DEFLATE, deflater, dst);
+    }
+
+    /**
+     * Inflates once into a buffer from {@link #acquire(int)}, advancing its position.
+     * @return the amount of bytes written to {@code dst}
+     * @throws DataFormatException if the compressed data is invalid
+     */
+    static int inflateStep(Inflater inflater, ByteBuffer dst) throws DataFormatException {
+        if (dst.hasArray()) {
+            int written = inflater.inflate(dst.array(), dst.arrayOffset() + dst.position(), dst.remaining());
+            ((Buffer) dst).position(dst.position() + written);
+            return written;
+        }
+        try {
+            return (int) INFLATER_INFLATE.invokeExact(inflater, dst);
+        } catch (DataFormatException | RuntimeException | Error e) {
+            throw e;
+        } catch (Throwable t) {
+            throw new IllegalStateException(t);
+        }
+    }
+
+    /**
+     * Inflating into a full buffer is allowed, because the end of the stream can be reached without producing output.
+     * Only when no progress is made, the reason is reported.
+     */
+    private static void checkProgress(Inflater inflater, ByteBuffer dst, int written) throws DataFormatException {
+        if (written == 0 && !inflater.finished()) {
+            if (!dst.hasRemaining()) {
+                throw new BufferOverflowException();
+            }
+            if (inflater.needsDictionary()) {
+                throw new DataFormatException("The compressed data needs a preset dictionary.");
+            }
+            if (inflater.needsInput()) {
+                throw new DataFormatException("The compressed data is incomplete.");
+            }
+        }
+    }
+
+    private static void invoke(MethodHandle handle, Object target, ByteBuffer buffer) {
+        try {
+            handle.invoke(target, buffer);
+        } catch (RuntimeException | Error e) {
+            throw e;
+        } catch (Throwable t) {
+            throw new IllegalStateException(t);
+        }
+    }
+
+    private static int invokeInt(MethodHandle handle, Object target, ByteBuffer buffer) {
+        try {
+            return (int) handle.invoke(target, buffer);
+        } catch (RuntimeException | Error e) {
+            throw e;
+        } catch (Throwable t) {
+            throw new IllegalStateException(t);
+        }
+    }
+}
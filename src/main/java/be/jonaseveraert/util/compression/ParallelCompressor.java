@@ -0,0 +1,261 @@
+package be.jonaseveraert.util.compression;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.zip.Adler32;
+import java.util.zip.CRC32;
+import java.util.zip.Checksum;
+import java.util.zip.Deflater;
+
+/**
+ * <p>Compresses data on multiple cores, the same way <a href="https://zlib.net/pigz/">pigz</a> does.</p>
+ * <p>The input is split into blocks of {@link #setBlockSize(int) blockSize} bytes, which are deflated at the same time
+ * on a {@link ForkJoinPool}. Each block is primed with the last 32 KB of the previous block as a dictionary, so the
+ * compression ratio stays close to that of the single-threaded {@link Compressor}. The blocks are joined into one
+ * valid ZLIB or GZIP stream: the ZLIB output can be read by the {@link Decompressor}, the GZIP output by any gzip tool
+ * or {@link java.util.zip.GZIPInputStream GZIPInputStream}.</p>
+ * <p>Code example:</p>
+ * <pre>{@code
+ *     ParallelCompressor compressor = new ParallelCompressor();
+ *     compressor.setFormat(ParallelCompressor.Format.GZIP);
+ *     try (InputStream in = new FileInputStream("archive.tar");
+ *          OutputStream out = new FileOutputStream("archive.tar.gz")) {
+ *         compressor.compress(in, out);
+ *     }
+ * }</pre>
+ *
+ * @author Jonas Everaert
+ * @author <a href="https://jonaseveraert.be">jonaseveraert.be</a>
+ * @since 1.2
+ */
+public class ParallelCompressor {
+    /**
+     * The container format the deflated blocks are written in.
+     */
+    public enum Format {
+        /**
+         * The ZLIB format (RFC 1950), the same format the {@link Compressor} produces
+         */
+        ZLIB,
+        /**
+         * The GZIP format (RFC 1952)
+         */
+        GZIP
+    }
+
+    public static final int DEFAULT_BLOCK_SIZE = 128 * 1024;
+    /**
+     * The size of the deflate window; the dictionary of a block is at most this big.
+     */
+    private static final int DICTIONARY_SIZE = 32 * 1024;
+
+    private int compressionLevel = Compressor.MAX_COMPRESSION;
+    private int blockSize = DEFAULT_BLOCK_SIZE;
+    private Format format = Format.ZLIB;
+    private ForkJoinPool pool = ForkJoinPool.commonPool();
+
+    /**
+     * Compresses the {@code input} in parallel.
+     * @param input the bytes that will be compressed
+     * @return the compressed data, in the {@link #setFormat(Format) chosen format}
+     */
+    public byte[] compress(byte[] input) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(input.length / 2 + 64);
+        try {
+            compress(new ByteArrayInputStream(input), out);
+        } catch (IOException e) {
+            // Byte array streams do not throw IOExceptions
+            throw new UnknownError();
+        }
+        return out.toByteArray();
+    }
+
+    /**
+     * Compresses everything that can be read from {@code in} in parallel and writes it to {@code out}.
+     * <p>At most two blocks per thread of the {@link #setPool(ForkJoinPool) pool} are held in memory at the same time,
+     * so this can be used for payloads of any size. Neither of the streams is closed.</p>
+     * @param in the stream that will be read until its end
+     * @param out the stream the compressed data will be written to
+     * @return the amount of compressed bytes written to {@code out}
+     * @throws IOException if an I/O exception occurs
+     */
+    public long compress(InputStream in, OutputStream out) throws IOException {
+        final int maxBlocksInFlight = Math.max(2, pool.getParallelism() * 2);
+        final ArrayDeque<ForkJoinTask<byte[]>> blocksInFlight = new ArrayDeque<>();
+        final Checksum checksum = format == Format.GZIP ? new CRC32() : new Adler32();
+
+        byte[] header = format == Format.GZIP ? gzipHeader() : zlibHeader();
+        out.write(header);
+        long written = header.length;
+        long uncompressedLength = 0;
+
+        byte[] previousBlock = null;
+        byte[] block = new byte[blockSize];
+        int blockLength = readBlock(in, block);
+        while (true) {
+            checksum.update(block, 0, blockLength);
+            uncompressedLength += blockLength;
+
+            // Read ahead one block to know whether the current block is the last one
+            byte[] nextBlock = null;
+            int nextBlockLength = -1;
+            if (blockLength == block.length) {
+                nextBlock = new byte[blockSize];
+                nextBlockLength = readBlock(in, nextBlock);
+            }
+            boolean last = nextBlockLength <= 0;
+
+            blocksInFlight.addLast(pool.submit(new BlockTask(block, blockLength, previousBlock, last)));
+            while (blocksInFlight.size() >= maxBlocksInFlight || (last && !blocksInFlight.isEmpty())) {
+                byte[] compressedBlock = blocksInFlight.removeFirst().join();
+                out.write(compressedBlock);
+                written += compressedBlock.length;
+            }
+
+            if (last) break;
+            previousBlock = block;
+            block = nextBlock;
+            blockLength = nextBlockLength;
+        }
+
+        byte[] trailer = format == Format.GZIP
+                ? gzipTrailer(checksum.getValue(), uncompressedLength)
+                : zlibTrailer(checksum.getValue());
+        out.write(trailer);
+        out.flush();
+        return written + trailer.length;
+    }
+
+    /**
+     * Reads until the {@code block} is full or the stream has ended.
+     * @return the amount of bytes read
+     */
+    private static int readBlock(InputStream in, byte[] block) throws IOException {
+        int length = 0;
+        int read;
+        while (length < block.length && (read = in.read(block, length, block.length - length)) != -1) {
+            length += read;
+        }
+        return length;
+    }
+
+    /**
+     * Deflates one block into raw deflate data. All blocks except the last one end with a sync flush, so that they end
+     * on a byte boundary and can be concatenated.
+     */
+    private final class BlockTask implements Callable<byte[]> {
+        private final byte[] block;
+        private final int blockLength;
+        private final byte[] previousBlock;
+        private final boolean last;
+
+        private BlockTask(byte[] block, int blockLength, byte[] previousBlock, boolean last) {
+            this.block = block;
+            this.blockLength = blockLength;
+            this.previousBlock = previousBlock;
+            this.last = last;
+        }
+
+        @Override
+        public byte[] call() {
+            Deflater deflater = DeflaterPool.getShared().acquire(compressionLevel, true);
+            try {
+                if (previousBlock != null) {
+                    deflater.setDictionary(previousBlock, previousBlock.length - DICTIONARY_SIZE, DICTIONARY_SIZE);
+                }
+                deflater.setInput(block, 0, blockLength);
+
+                byte[] output = new byte[blockLength + (blockLength >> 3) + 64];
+                int outputLength = 0;
+                if (last) {
+                    deflater.finish();
+                    while (!deflater.finished()) {
+                        if (outputLength == output.length) output = Arrays.copyOf(output, output.length * 2);
+                        outputLength += deflater.deflate(output, outputLength, output.length - outputLength);
+                    }
+                } else {
+                    // The output is complete once the deflater stops filling up the buffer
+                    do {
+                        if (outputLength == output.length) output = Arrays.copyOf(output, output.length * 2);
+                        outputLength += deflater.deflate(output, outputLength, output.length - outputLength, Deflater.SYNC_FLUSH);
+                    } while (outputLength == output.length);
+                }
+                return outputLength == output.length ? output : Arrays.copyOf(output, outputLength);
+            } finally {
+                DeflaterPool.getShared().release(deflater);
+            }
+        }
+    }
+
+    // Headers and trailers //
+    private byte[] zlibHeader() {
+        int cmf = 0x78; // deflate with a 32 KB window
+        int fLevel = compressionLevel < 2 ? 0 : compressionLevel < 6 ? 1 : compressionLevel == 6 ? 2 : 3;
+        int flg = fLevel << 6;
+        flg += (31 - ((cmf << 8) + flg) % 31) % 31;
+        return new byte[]{(byte) cmf, (byte) flg};
+    }
+
+    private static byte[] zlibTrailer(long adler) {
+        return new byte[]{(byte) (adler >>> 24), (byte) (adler >>> 16), (byte) (adler >>> 8), (byte) adler};
+    }
+
+    private byte[] gzipHeader() {
+        int xfl = compressionLevel == Compressor.MAX_COMPRESSION ? 2 : compressionLevel == Compressor.FASTEST_COMPRESSION ? 4 : 0;
+        // magic, deflate, no flags, no modification time, extra flags, unknown OS
+        return new byte[]{0x1f, (byte) 0x8b, 8, 0, 0, 0, 0, 0, (byte) xfl, (byte) 0xff};
+    }
+
+    private static byte[] gzipTrailer(long crc, long uncompressedLength) {
+        return new byte[]{
+                (byte) crc, (byte) (crc >>> 8), (byte) (crc >>> 16), (byte) (crc >>> 24),
+                (byte) uncompressedLength, (byte) (uncompressedLength >>> 8), (byte) (uncompressedLength >>> 16), (byte) (uncompressedLength >>> 24)
+        };
+    }
+
+    // Settings //
+    /**
+     * Sets the compression level, which has to be a value between 0 and 9.
+     * @param level The compression level, a value between 0 and 9. 0 indicates no compression, 9 is highest compression.
+     * @throws InvalidCompressionLevelException Thrown when the {@code level} is not between 0 and 9
+     */
+    public void setCompressionLevel(int level) {
+        Compressor.checkCompressionLevel(level);
+        this.compressionLevel = level;
+    }
+
+    /**
+     * Sets the size of the blocks that are compressed in parallel. Smaller blocks spread the work better over the cores,
+     * bigger blocks compress slightly better.
+     * @param blockSize the block size in bytes, at least 32 KB
+     * @throws IllegalArgumentException if the {@code blockSize} is smaller than 32 KB
+     */
+    public void setBlockSize(int blockSize) {
+        if (blockSize < DICTIONARY_SIZE) {
+            throw new IllegalArgumentException("The block size has to be at least " + DICTIONARY_SIZE + " bytes.");
+        }
+        this.blockSize = blockSize;
+    }
+
+    /**
+     * @param format the format of the output, {@link Format#ZLIB ZLIB} by default
+     */
+    public void setFormat(Format format) {
+        this.format = format;
+    }
+
+    /**
+     * @param pool the pool the blocks are compressed on, the {@link ForkJoinPool#commonPool() common pool} by default
+     */
+    public void setPool(ForkJoinPool pool) {
+        this.pool = pool;
+    }
+}
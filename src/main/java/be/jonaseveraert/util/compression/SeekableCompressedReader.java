@@ -0,0 +1,278 @@
+package be.jonaseveraert.util.compression;
+
+import java.io.Closeable;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.Buffer;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.SeekableByteChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.zip.DataFormatException;
+import java.util.zip.Inflater;
+
+/**
+ * <p>Reads ranges out of a container written by a {@link SeekableCompressedWriter}, decompressing only the blocks that
+ * contain the range. The last decompressed block is kept, so reading a file front to back in small pieces decompresses
+ * every block only once.</p>
+ * <p>For a code example, see the {@link SeekableCompressedWriter}. A reader can be used by several threads, but reads
+ * are executed one at a time.</p>
+ *
+ * @author Jonas Everaert
+ * @author <a href="https://jonaseveraert.be">jonaseveraert.be</a>
+ * @since 1.2
+ */
+public class SeekableCompressedReader implements Closeable {
+    private final SeekableByteChannel channel;
+    private final int blockSize;
+    private final long[] uncompressedOffsets;
+    private final long[] compressedOffsets;
+    private final long indexOffset;
+    private final long uncompressedLength;
+
+    private byte[] compressedBlock = new byte[0];
+    private final byte[] cachedBlock;
+    private int cachedBlockIndex = -1;
+
+    /**
+     * Opens the container in a file.
+     * @param path the path of the container
+     * @return a reader for the container
+     * @throws IOException if an I/O exception occurs, or if the file is not a valid container
+     */
+    public static SeekableCompressedReader open(Path path) throws IOException {
+        FileChannel channel = FileChannel.open(path, StandardOpenOption.READ);
+        try {
+            return new SeekableCompressedReader(channel);
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Reads the header and the index of the container.
+     * @param channel the channel containing the container. It is closed when the reader is closed.
+     * @throws IOException if an I/O exception occurs, or if the channel does not contain a valid container
+     */
+    public SeekableCompressedReader(SeekableByteChannel channel) throws IOException {
+        this.channel = channel;
+
+        ByteBuffer header = readAt(0, SeekableCompressedWriter.HEADER_LENGTH);
+        checkMagic(header);
+        if (header.get() != SeekableCompressedWriter.VERSION) {
+            throw new IOException("The container has an unsupported version.");
+        }
+        this.blockSize = header.getInt();
+        if (blockSize <= 0) {
+            throw new IOException("The container has an invalid block size: " + blockSize);
+        }
+
+        long size = channel.size();
+        if (size < SeekableCompressedWriter.HEADER_LENGTH + SeekableCompressedWriter.FOOTER_LENGTH) {
+            throw new IOException("The container is incomplete.");
+        }
+        ByteBuffer footer = readAt(size - SeekableCompressedWriter.FOOTER_LENGTH, SeekableCompressedWriter.FOOTER_LENGTH);
+        this.indexOffset = footer.getLong();
+        int blockCount = footer.getInt();
+        this.uncompressedLength = footer.getLong();
+        checkMagic(footer);
+        long indexLength = (long) blockCount * SeekableCompressedWriter.INDEX_ENTRY_LENGTH;
+        if (blockCount < 0 || indexOffset < SeekableCompressedWriter.HEADER_LENGTH || uncompressedLength < 0
+                || indexLength > Integer.MAX_VALUE - 8 || indexOffset + indexLength != size - SeekableCompressedWriter.FOOTER_LENGTH) {
+            throw new IOException("The index of the container is invalid.");
+        }
+
+        ByteBuffer index = readAt(indexOffset, (int) indexLength);
+        this.uncompressedOffsets = new long[blockCount];
+        this.compressedOffsets = new long[blockCount];
+        for (int i = 0; i < blockCount; i++) {
+            uncompressedOffsets[i] = index.getLong();
+            compressedOffsets[i] = index.getLong();
+        }
+        this.cachedBlock = new byte[checkIndex()];
+    }
+
+    /**
+     * Checks that the blocks follow each other without gaps, both uncompressed and compressed, and that they all fit
+     * in an array. Otherwise a corrupt index would only show up as an exception in the middle of a read.
+     * @return the uncompressed length of the biggest block
+     * @throws IOException if the index is invalid
+     */
+    private int checkIndex() throws IOException {
+        int blockCount = uncompressedOffsets.length;
+        if (blockCount == 0) {
+            if (uncompressedLength != 0 || indexOffset != SeekableCompressedWriter.HEADER_LENGTH) {
+                throw new IOException("The index of the container is invalid.");
+            }
+            return 0;
+        }
+        if (uncompressedOffsets[0] != 0 || compressedOffsets[0] != SeekableCompressedWriter.HEADER_LENGTH) {
+            throw new IOException("The index of the container is invalid.");
+        }
+        int maxBlockLength = 0;
+        for (int i = 0; i < blockCount; i++) {
+            long uncompressedEnd = i + 1 < blockCount ? uncompressedOffsets[i + 1] : uncompressedLength;
+            long compressedEnd = i + 1 < blockCount ? compressedOffsets[i + 1] : indexOffset;
+            long blockLength = uncompressedEnd - uncompressedOffsets[i];
+            long compressedLength = compressedEnd - compressedOffsets[i];
+            if (blockLength <= 0 || blockLength > blockSize || compressedLength <= 0 || compressedLength > Integer.MAX_VALUE - 8) {
+                throw new IOException("Block " + i + " in the index of the container is invalid.");
+            }
+            maxBlockLength = Math.max(maxBlockLength, (int) blockLength);
+        }
+        return maxBlockLength;
+    }
+
+    /**
+     * @return the total amount of uncompressed bytes in the container
+     */
+    public long length() {
+        return uncompressedLength;
+    }
+
+    public int getBlockCount() {
+        return compressedOffsets.length;
+    }
+
+    public int getBlockSize() {
+        return blockSize;
+    }
+
+    /**
+     * Reads uncompressed bytes from the container.
+     * @param position the uncompressed position to start reading from
+     * @param dst the array the bytes are copied to
+     * @param off the offset in {@code dst}
+     * @param len the maximum amount of bytes to read
+     * @return the amount of bytes read, which is only smaller than {@code len} at the end of the container, or -1 if
+     * the {@code position} is at or after the end of the container
+     * @throws IOException if an I/O exception occurs, or if a block is corrupt
+     * @throws IllegalArgumentException if the {@code position} is negative
+     * @throws IndexOutOfBoundsException if {@code len} bytes do not fit in {@code dst} from {@code off} on
+     */
+    public synchronized int read(long position, byte[] dst, int off, int len) throws IOException {
+        if (position < 0) {
+            throw new IllegalArgumentException("The position cannot be negative.");
+        }
+        if (off < 0 || len < 0 || off > dst.length - len) {
+            throw new IndexOutOfBoundsException("The range [" + off + ", " + off + " + " + len + ") does not fit in an array of length " + dst.length);
+        }
+        if (position >= uncompressedLength) {
+            return len == 0 ? 0 : -1;
+        }
+        len = (int) Math.min(len, uncompressedLength - position);
+        int read = 0;
+        while (read < len) {
+            int blockIndex = blockIndexOf(position + read);
+            int blockLength = loadBlock(blockIndex);
+            int offsetInBlock = (int) (position + read - uncompressedOffsets[blockIndex]);
+            int length = Math.min(len - read, blockLength - offsetInBlock);
+            System.arraycopy(cachedBlock, offsetInBlock, dst, off + read, length);
+            read += length;
+        }
+        return read;
+    }
+
+    /**
+     * Reads uncompressed bytes from the container.
+     * @param position the uncompressed position to start reading from
+     * @param length the amount of bytes to read
+     * @return an array of {@code length} bytes
+     * @throws EOFException if the range goes past the end of the container
+     * @throws IOException if an I/O exception occurs, or if a block is corrupt
+     * @throws IllegalArgumentException if the {@code position} or the {@code length} is negative
+     */
+    public byte[] read(long position, int length) throws IOException {
+        if (position < 0 || length < 0) {
+            throw new IllegalArgumentException("The position and the length cannot be negative.");
+        }
+        if (length > uncompressedLength - position) {
+            throw new EOFException("The range goes past the end of the container.");
+        }
+        byte[] bytes = new byte[length];
+        read(position, bytes, 0, length);
+        return bytes;
+    }
+
+    private int blockIndexOf(long position) {
+        int index = Arrays.binarySearch(uncompressedOffsets, position);
+        return index >= 0 ? index : -index - 2;
+    }
+
+    /**
+     * Decompresses a block into the cache, unless it is already there.
+     * @return the uncompressed length of the block
+     */
+    private int loadBlock(int blockIndex) throws IOException {
+        int blockLength = (int) ((blockIndex + 1 < uncompressedOffsets.length ? uncompressedOffsets[blockIndex + 1] : uncompressedLength)
+                - uncompressedOffsets[blockIndex]);
+        if (blockIndex == cachedBlockIndex) {
+            return blockLength;
+        }
+
+        long compressedEnd = blockIndex + 1 < compressedOffsets.length ? compressedOffsets[blockIndex + 1] : indexOffset;
+        int compressedLength = (int) (compressedEnd - compressedOffsets[blockIndex]);
+        if (compressedBlock.length < compressedLength) {
+            compressedBlock = new byte[compressedLength];
+        }
+        ByteBuffer buffer = ByteBuffer.wrap(compressedBlock, 0, compressedLength);
+        readFully(compressedOffsets[blockIndex], buffer);
+
+        cachedBlockIndex = -1;
+        Inflater decompressor = InflaterPool.getShared().acquire();
+        try {
+            decompressor.setInput(compressedBlock, 0, compressedLength);
+            int inflated = 0;
+            while (!decompressor.finished() && inflated < blockLength) {
+                int length = decompressor.inflate(cachedBlock, inflated, blockLength - inflated);
+                if (length == 0 && (decompressor.needsInput() || decompressor.needsDictionary())) break;
+                inflated += length;
+            }
+            if (inflated != blockLength) {
+                throw new IOException("Block " + blockIndex + " of the container is corrupt.");
+            }
+        } catch (DataFormatException e) {
+            throw new IOException("Block " + blockIndex + " of the container is corrupt.", e);
+        } finally {
+            InflaterPool.getShared().release(decompressor);
+        }
+        cachedBlockIndex = blockIndex;
+        return blockLength;
+    }
+
+    private ByteBuffer readAt(long position, int length) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(length);
+        readFully(position, buffer);
+        ((Buffer) buffer).flip();
+        return buffer;
+    }
+
+    private void readFully(long position, ByteBuffer buffer) throws IOException {
+        channel.position(position);
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer) == -1) {
+                throw new EOFException("The container is incomplete.");
+            }
+        }
+    }
+
+    private static void checkMagic(ByteBuffer buffer) throws IOException {
+        for (byte b : SeekableCompressedWriter.MAGIC) {
+            if (buffer.get() != b) {
+                throw new IOException("The data is not a seekable compressed container.");
+            }
+        }
+    }
+
+    /**
+     * Closes the underlying channel.
+     * @throws IOException if an I/O exception occurs
+     */
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+}
@@ -0,0 +1,177 @@
+package be.jonaseveraert.util.compression;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.zip.Deflater;
+
+/**
+ * <p>Writes a seekable compressed container, which can be read with a {@link SeekableCompressedReader}.</p>
+ * <p>The data is cut into blocks of {@link #DEFAULT_BLOCK_SIZE} bytes (or the block size given to the constructor), and
+ * every block is compressed into its own ZLIB stream. When the writer is closed, an index with the uncompressed and
+ * compressed offset of every block is written after the blocks. A reader only has to decompress the blocks that
+ * contain the range it needs.</p>
+ * <pre>
+ *     header   "JUSC", version (1 byte), block size (4 bytes)
+ *     blocks   one ZLIB stream per block
+ *     index    per block: uncompressed offset (8 bytes), compressed offset (8 bytes)
+ *     footer   index offset (8 bytes), block count (4 bytes), uncompressed length (8 bytes), "JUSC"
+ * </pre>
+ * <p>All numbers are big-endian. Code example:</p>
+ * <pre>{@code
+ *     try (SeekableCompressedWriter writer = new SeekableCompressedWriter(new FileOutputStream("audio.jusc"))) {
+ *         writer.write(audioBytes);
+ *     }
+ *
+ *     try (SeekableCompressedReader reader = SeekableCompressedReader.open(Paths.get("audio.jusc"))) {
+ *         byte[] window = reader.read(44100 * 60, 44100);
+ *     }
+ * }</pre>
+ *
+ * @author Jonas Everaert
+ * @author <a href="https://jonaseveraert.be">jonaseveraert.be</a>
+ * @since 1.2
+ */
+public class SeekableCompressedWriter implements Closeable {
+    public static final int DEFAULT_BLOCK_SIZE = 256 * 1024;
+
+    static final byte[] MAGIC = {'J', 'U', 'S', 'C'};
+    static final int VERSION = 1;
+    static final int HEADER_LENGTH = 9;
+    static final int INDEX_ENTRY_LENGTH = 16;
+    static final int FOOTER_LENGTH = 24;
+
+    private final OutputStream out;
+    private final int compressionLevel;
+    private final byte[] block;
+    private int blockLength = 0;
+    private byte[] compressedBlock;
+
+    private long[] uncompressedOffsets = new long[64];
+    private long[] compressedOffsets = new long[64];
+    private int blockCount = 0;
+    private long uncompressedLength = 0;
+    private long position;
+    private boolean closed = false;
+
+    /**
+     * Creates a writer with the {@link #DEFAULT_BLOCK_SIZE default block size} and the
+     * {@link Compressor#MAX_COMPRESSION maximum compression level}.
+     * @param out the stream the container is written to. It is closed when the writer is closed.
+     * @throws IOException if an I/O exception occurs while writing the header
+     */
+    public SeekableCompressedWriter(OutputStream out) throws IOException {
+        this(out, DEFAULT_BLOCK_SIZE, Compressor.MAX_COMPRESSION);
+    }
+
+    /**
+     * @param out the stream the container is written to. It is closed when the writer is closed.
+     * @param blockSize the amount of uncompressed bytes per block. Smaller blocks make reading a small range cheaper,
+     *                  bigger blocks compress better.
+     * @param compressionLevel the compression level, a value between 0 and 9
+     * @throws IOException if an I/O exception occurs while writing the header
+     * @throws InvalidCompressionLevelException Thrown when the {@code compressionLevel} is not between 0 and 9
+     * @throws IllegalArgumentException if the {@code blockSize} is not positive
+     */
+    public SeekableCompressedWriter(OutputStream out, int blockSize, int compressionLevel) throws IOException {
+        Compressor.checkCompressionLevel(compressionLevel);
+        if (blockSize <= 0) {
+            throw new IllegalArgumentException("The block size has to be positive.");
+        }
+        this.out = out;
+        this.compressionLevel = compressionLevel;
+        this.block = new byte[blockSize];
+        this.compressedBlock = new byte[blockSize + (blockSize >> 3) + 64];
+
+        ByteBuffer header = ByteBuffer.allocate(HEADER_LENGTH);
+        header.put(MAGIC).put((byte) VERSION).putInt(blockSize);
+        out.write(header.array());
+        this.position = HEADER_LENGTH;
+    }
+
+    /**
+     * @param b the data to add to the container
+     * @throws IOException if an I/O exception occurs
+     */
+    public void write(byte[] b) throws IOException {
+        write(b, 0, b.length);
+    }
+
+    /**
+     * @param b an array containing the data to add to the container
+     * @param off the offset of the data in the array
+     * @param len the length of the data
+     * @throws IOException if an I/O exception occurs
+     */
+    public void write(byte[] b, int off, int len) throws IOException {
+        if (closed) {
+            throw new IOException("The writer is closed.");
+        }
+        while (len > 0) {
+            int length = Math.min(len, block.length - blockLength);
+            System.arraycopy(b, off, block, blockLength, length);
+            blockLength += length;
+            off += length;
+            len -= length;
+            if (blockLength == block.length) {
+                writeBlock();
+            }
+        }
+    }
+
+    private void writeBlock() throws IOException {
+        if (blockCount == compressedOffsets.length) {
+            uncompressedOffsets = Arrays.copyOf(uncompressedOffsets, blockCount * 2);
+            compressedOffsets = Arrays.copyOf(compressedOffsets, blockCount * 2);
+        }
+        uncompressedOffsets[blockCount] = uncompressedLength;
+        compressedOffsets[blockCount] = position;
+        blockCount++;
+
+        Deflater compressor = DeflaterPool.getShared().acquire(compressionLevel);
+        try {
+            compressor.setInput(block, 0, blockLength);
+            compressor.finish();
+            int compressedLength = 0;
+            while (!compressor.finished()) {
+                if (compressedLength == compressedBlock.length) {
+                    compressedBlock = Arrays.copyOf(compressedBlock, compressedBlock.length * 2);
+                }
+                compressedLength += compressor.deflate(compressedBlock, compressedLength, compressedBlock.length - compressedLength);
+            }
+            out.write(compressedBlock, 0, compressedLength);
+            position += compressedLength;
+        } finally {
+            DeflaterPool.getShared().release(compressor);
+        }
+        uncompressedLength += blockLength;
+        blockLength = 0;
+    }
+
+    /**
+     * Writes the last block, the index and the footer, and closes the underlying stream.
+     * @throws IOException if an I/O exception occurs
+     */
+    @Override
+    public void close() throws IOException {
+        if (closed) return;
+        closed = true;
+        try {
+            if (blockLength > 0) {
+                writeBlock();
+            }
+            long indexOffset = position;
+            ByteBuffer index = ByteBuffer.allocate(blockCount * INDEX_ENTRY_LENGTH + FOOTER_LENGTH);
+            for (int i = 0; i < blockCount; i++) {
+                index.putLong(uncompressedOffsets[i]).putLong(compressedOffsets[i]);
+            }
+            index.putLong(indexOffset).putInt(blockCount).putLong(uncompressedLength).put(MAGIC);
+            out.write(index.array());
+            out.flush();
+        } finally {
+            out.close();
+        }
+    }
+}
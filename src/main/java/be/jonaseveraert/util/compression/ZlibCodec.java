@@ -0,0 +1,44 @@
+package be.jonaseveraert.util.compression;
+
+import java.util.zip.DataFormatException;
+
+/**
+ * The ZLIB format (RFC 1950), the same format as the {@link Compressor} and {@link Decompressor} use without framing.
+ *
+ * @author Jonas Everaert
+ * @author <a href="https://jonaseveraert.be">jonaseveraert.be</a>
+ * @since 1.2
+ */
+public class ZlibCodec extends DeflaterCodec {
+    public static final String NAME = "zlib";
+
+    /**
+     * Creates a codec with the {@link Compressor#MAX_COMPRESSION maximum compression level}.
+     */
+    public ZlibCodec() {
+        this(Compressor.MAX_COMPRESSION);
+    }
+
+    /**
+     * @param compressionLevel the compression level, a value between 0 and 9
+     * @throws InvalidCompressionLevelException Thrown when the {@code compressionLevel} is not between 0 and 9
+     */
+    public ZlibCodec(int compressionLevel) {
+        super(compressionLevel, false);
+    }
+
+    @Override
+    public String getName() {
+        return NAME;
+    }
+
+    @Override
+    public byte[] compress(byte[] input, int offset, int length) {
+        return deflate(input, offset, length, new byte[length / 2 + 64], 0);
+    }
+
+    @Override
+    public byte[] decompress(byte[] input, int offset, int length) throws DataFormatException {
+        return inflate(input, offset, length, null);
+    }
+}